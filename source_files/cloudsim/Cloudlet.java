@@ -15,6 +15,7 @@ import java.util.List;
 import com.optacloud.domain.CloudletDifficultyComparatorClass;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.optaplanner.core.api.domain.entity.PlanningEntity;
+import org.optaplanner.core.api.domain.lookup.PlanningId;
 import org.optaplanner.core.api.domain.variable.PlanningVariable;
 
 /**
@@ -1414,6 +1415,7 @@ public class Cloudlet {
      * @pre $none
      * @post $none
      */
+    @PlanningId
     public int getCloudletId() {
         return cloudletId;
     }
@@ -17,6 +17,8 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.lists.HostList;
+import org.cloudbus.cloudsim.lists.IdIndexedList;
 
 /**
  * Datacenter class is a CloudResource whose hostList are virtualized. It deals with processing of
@@ -95,7 +97,7 @@ public class Datacenter extends SimEntity {
 		setVmAllocationPolicy(vmAllocationPolicy);
 		setLastProcessTime(0.0);
 		setStorageList(storageList);
-		setVmList(new ArrayList<Vm>());
+		setVmList(new IdIndexedList<Vm>(Vm::getId));
 		setSchedulingInterval(schedulingInterval);
 
 		for (Host host : getCharacteristics().getHostList()) {
@@ -268,6 +270,22 @@ public class Datacenter extends SimEntity {
 				stopVmCloudlets(ev);
 				break;
 
+			case CloudSimTags.PAUSE_VMCLOUDLETS_BATCH:
+				stopVmsCloudlets(ev);
+				break;
+
+			case CloudSimTags.VM_REPLAN:
+				processVmReplan(ev);
+				break;
+
+			case CloudSimTags.VM_BACKGROUND_PLAN:
+				processBackgroundPlan(ev);
+				break;
+
+			case CloudSimTags.VM_REPLAN_DONE:
+				getVmAllocationPolicy().replanApplied();
+				break;
+
 			// other unknown tags are processed by this method
 			default:
 				processOtherEvent(ev);
@@ -482,21 +500,14 @@ public class Datacenter extends SimEntity {
                 boolean[] result;
                 result = getVmAllocationPolicy().allocateHostForVm(vmList);
                 
+                //Un sol ack per a tota la llista: {datacenterId, vmId0, resultat0, vmId1, resultat1, ...}
+                int[] data = new int[1 + 2 * vmList.size()];
+                data[0] = getId();
+
                 for (int i = 0; i < vmList.size(); ++i) {
                     Vm vm = vmList.get(i);
-                    if (ack) {
-						int[] data = new int[3];
-						data[0] = getId();
-						data[1] = vm.getId();
-
-						if (result[i]) {
-							data[2] = CloudSimTags.TRUE;
-						} else {
-							data[2] = CloudSimTags.FALSE;
-						}
-						//retornar al broker si s'ha allotjat la vm a un host
-						send(vm.getUserId(), CloudSim.getMinTimeBetweenEvents(), CloudSimTags.VM_CREATE_ACK, data);
-                    }
+                    data[1 + 2 * i] = vm.getId();
+                    data[2 + 2 * i] = result[i] ? CloudSimTags.TRUE : CloudSimTags.FALSE;
 
                     if (result[i]) {
 						getVmList().add(vm);
@@ -509,7 +520,16 @@ public class Datacenter extends SimEntity {
 								.getAllocatedMipsForVm(vm));
                     }
                 }
-                
+
+                //retornar al broker quines vm s'han allotjat a un host
+                if (ack && !vmList.isEmpty()) {
+                    send(vmList.get(0).getUserId(), CloudSim.getMinTimeBetweenEvents(), CloudSimTags.VM_CREATE_BATCH_ACK, data);
+                }
+
+                //Si la política continua resolent en segon pla, aplicar-ne el resultat més endavant
+                double delay = getVmAllocationPolicy().getBackgroundPlanDelay();
+                if (delay >= 0) schedule(getId(), delay, CloudSimTags.VM_BACKGROUND_PLAN, vmList);
+
             } else { //MOTOR CLOUDSIM
 				Vm vm = (Vm) ev.getData();
 
@@ -577,12 +597,58 @@ public class Datacenter extends SimEntity {
 
 	//Atura les els cloudlets que s'executan a la VM
 	protected void stopVmCloudlets(SimEvent ev) {
-		Vm vm = (Vm) ev.getData();
+		stopVmCloudlets((Vm) ev.getData());
+	}
+
+	//Atura els cloudlets de totes les VMs de la llista en una sola passada
+	@SuppressWarnings("unchecked")
+	protected void stopVmsCloudlets(SimEvent ev) {
+		for (Vm vm : (List<Vm>) ev.getData()) {
+			stopVmCloudlets(vm);
+		}
+	}
+
+	protected void stopVmCloudlets(Vm vm) {
 		//Afegir els cloudlets que encara s'executan de la VM a migrar
 		//setCloudletsMigrating(vm.getCloudletScheduler().migrateCloudlets());
 		vm.getCloudletScheduler().migrateCloudlets();
 	}
 
+	//Torna a planificar les VMs sense tocar-les i retorna al broker només les que han de canviar de host
+	@SuppressWarnings("unchecked")
+	protected void processVmReplan(SimEvent ev) {
+		List<Vm> vmList = (List<Vm>) ev.getData();
+		Host[] hosts = getVmAllocationPolicy().planHostsForVm(vmList);
+
+		int moves = 0;
+		for (int i = 0; i < hosts.length; ++i) {
+			if (hosts[i] != null && hosts[i] != vmList.get(i).getHost()) ++moves;
+		}
+		int[] data = new int[1 + 2 * moves];
+		data[0] = getId();
+		int k = 1;
+		for (int i = 0; i < hosts.length; ++i) {
+			if (hosts[i] == null || hosts[i] == vmList.get(i).getHost()) continue;
+			data[k++] = vmList.get(i).getId();
+			data[k++] = hosts[i].getId();
+		}
+		sendNow(ev.getSource(), CloudSimTags.VM_REPLAN_RESULT, data);
+	}
+
+	//Aplica el pla millorat de la resolució en segon pla: mou les VMs del lot que encara són on les va deixar la creació
+	@SuppressWarnings("unchecked")
+	protected void processBackgroundPlan(SimEvent ev) {
+		Map<Vm, Host> moves = getVmAllocationPolicy().takeBackgroundPlan((List<Vm>) ev.getData());
+		if (moves == null) return;
+
+		int migrated = 0;
+		for (Map.Entry<Vm, Host> entry : moves.entrySet()) {
+			if (migrateVM(entry.getKey(), entry.getValue())) ++migrated;
+		}
+		Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Background plan migrated ", migrated,
+				" of ", moves.size(), " VM/s");
+	}
+
 	//S'intenta moure la VM al host especificat.
 	protected void migrateVM(SimEvent ev, boolean ack) {
 		Map<Vm, Integer> migrate = (Map<Vm, Integer>) ev.getData();
@@ -590,11 +656,34 @@ public class Datacenter extends SimEntity {
 		Map.Entry<Vm,Integer> entry = migrate.entrySet().iterator().next();
 		Vm vm = entry.getKey();
 		int hostId = entry.getValue();
-		Host host = getCharacteristics().getHostList().get(hostId);
+		Host host = HostList.getById(getCharacteristics().getHostList(), hostId);
 
 		//Guardar l'anterior host per si no es pot migrar
 		Host prev_host = vm.getHost();
 
+		boolean result = migrateVM(vm, host);
+
+		if (ack) {
+			int[] data = new int[3];
+			data[0] = vm.getId();
+			if (result) {
+				data[1] = CloudSimTags.TRUE;
+			} else {
+				data[1] = CloudSimTags.FALSE;
+			}
+			if (prev_host == null) {
+				data[2] = CloudSimTags.FALSE;
+			} else {
+				data[2] = CloudSimTags.TRUE;
+			}
+			sendNow(ev.getSource(), CloudSimTags.MIGRATE_VM_ACK, data);
+		}
+	}
+
+	//Mou la VM al host (o la crea, si no en té). Si no hi cap es torna a allotjar al seu host anterior
+	protected boolean migrateVM(Vm vm, Host host) {
+		Host prev_host = vm.getHost();
+
 		//Desallotjar
 		if (prev_host != null) getVmAllocationPolicy().deallocateHostForVm(vm);
 
@@ -603,7 +692,7 @@ public class Datacenter extends SimEntity {
 
 		boolean result = getVmAllocationPolicy().allocateHostForVm(vm, host);
 		if (!result) {
-			Log.printLine("Couldn't allocate VM#" + vm.getId() + " to Host#" + hostId + ". Returning to original state");
+			Log.printLine("Couldn't allocate VM#" + vm.getId() + " to Host#" + host.getId() + ". Returning to original state");
 			if (prev_host != null) getVmAllocationPolicy().allocateHostForVm(vm, prev_host);
 		} else {
 			if (prev_host == null) {
@@ -617,23 +706,8 @@ public class Datacenter extends SimEntity {
 			vm.setBeingInstantiated(false);
 		}
 
-		if (ack) {
-			int[] data = new int[3];
-			data[0] = vm.getId();
-			if (result) {
-				data[1] = CloudSimTags.TRUE;
-			} else {
-				data[1] = CloudSimTags.FALSE;
-			}
-			if (prev_host == null) {
-				data[2] = CloudSimTags.FALSE;
-			} else {
-				data[2] = CloudSimTags.TRUE;
-			}
-			sendNow(ev.getSource(), CloudSimTags.MIGRATE_VM_ACK, data);
-		}
-
 		vm.setInMigration(false);
+		return result;
 	}
 
 	/**
@@ -1227,6 +1301,10 @@ public class Datacenter extends SimEntity {
 		sendNow(gisID, CloudSimTags.REGISTER_RESOURCE, getId());
 		// Below method is for a child class to override
 		registerOtherEntity();
+		//Evitar que la primera ronda d'allotjament pagui la càrrega de classes i el JIT del solver
+		if (CloudSim.getOpta()) {
+			getVmAllocationPolicy().warmUp();
+		}
 	}
 
 	/**
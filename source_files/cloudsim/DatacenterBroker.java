@@ -10,17 +10,19 @@ package org.cloudbus.cloudsim;
 
 import java.util.*;
 
+import com.optacloud.SolverCache;
 import com.optacloud.domain.VmCloudletBalance;
+import com.optacloud.telemetry.SolverTelemetry;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.cloudbus.cloudsim.lists.CloudletList;
+import org.cloudbus.cloudsim.lists.IdIndexedList;
 import org.cloudbus.cloudsim.lists.VmList;
 
 import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 import org.optaplanner.core.api.solver.Solver;
-import org.optaplanner.core.api.solver.SolverFactory;
 
 /**
  * DatacentreBroker represents a broker acting on behalf of a user. It hides VM management, as vm
@@ -97,11 +99,11 @@ public class DatacenterBroker extends SimEntity {
 	public DatacenterBroker(String name) throws Exception {
 		super(name);
 
-		setVmList(new ArrayList<Vm>());
-		setVmsCreatedList(new ArrayList<Vm>());
-		setCloudletList(new ArrayList<Cloudlet>());
-		setCloudletSubmittedList(new ArrayList<Cloudlet>());
-		setCloudletReceivedList(new ArrayList<Cloudlet>());
+		setVmList(new IdIndexedList<Vm>(Vm::getId));
+		setVmsCreatedList(new IdIndexedList<Vm>(Vm::getId));
+		setCloudletList(new IdIndexedList<Cloudlet>(Cloudlet::getCloudletId));
+		setCloudletSubmittedList(new IdIndexedList<Cloudlet>(Cloudlet::getCloudletId));
+		setCloudletReceivedList(new IdIndexedList<Cloudlet>(Cloudlet::getCloudletId));
 
 		cloudletsSubmitted = 0;
 		setVmsRequested(0);
@@ -174,6 +176,10 @@ public class DatacenterBroker extends SimEntity {
 			case CloudSimTags.VM_CREATE_ACK:
 				processVmCreate(ev);
 				break;
+			// VM list creation answer (OptaPlanner)
+			case CloudSimTags.VM_CREATE_BATCH_ACK:
+				processVmCreateBatch(ev);
+				break;
 			// A finished cloudlet returned
 			case CloudSimTags.CLOUDLET_RETURN:
 				processCloudletReturn(ev);
@@ -242,19 +248,44 @@ public class DatacenterBroker extends SimEntity {
 		int vmId = data[1];
 		int result = data[2];
 
+		processVmCreateResult(datacenterId, vmId, result, VmList.getById(getVmList(), vmId));
+		incrementVmsAcks();
+		processVmsCreated();
+	}
+
+	/**
+	 * Process the ack received due to a request for a VM list creation (OptaPlanner engine).
+	 * The event data is {datacenterId, vmId0, result0, vmId1, result1, ...}.
+	 *
+	 * @param ev a SimEvent object
+	 * @see CloudSimTags#VM_CREATE_BATCH_ACK
+	 */
+	protected void processVmCreateBatch(SimEvent ev) {
+		int[] data = (int[]) ev.getData();
+		int datacenterId = data[0];
+
+		for (int i = 1; i + 1 < data.length; i += 2) {
+			processVmCreateResult(datacenterId, data[i], data[i + 1], VmList.getById(getVmList(), data[i]));
+			incrementVmsAcks();
+		}
+		processVmsCreated();
+	}
+
+	//Resultat de la creació d'una VM
+	private void processVmCreateResult(int datacenterId, int vmId, int result, Vm vm) {
 		if (result == CloudSimTags.TRUE) {
 			getVmsToDatacentersMap().put(vmId, datacenterId);
-			getVmsCreatedList().add(VmList.getById(getVmList(), vmId));
+			getVmsCreatedList().add(vm);
 			Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": VM #", vmId,
-					" has been created in Datacenter #", datacenterId, ", Host #",
-					VmList.getById(getVmsCreatedList(), vmId).getHost().getId());
+					" has been created in Datacenter #", datacenterId, ", Host #", vm.getHost().getId());
 		} else {
 			Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Creation of VM #", vmId,
 					" failed in Datacenter #", datacenterId);
 		}
+	}
 
-		incrementVmsAcks();
-
+	//Un cop rebuts els resultats: enviar els cloudlets o provar el següent datacenter
+	private void processVmsCreated() {
 		// all the requested VMs have been created
 		if (getVmsCreatedList().size() == getVmList().size() - getVmsDestroyed()) {
 			submitCloudlets();
@@ -406,36 +437,41 @@ public class DatacenterBroker extends SimEntity {
 		List<Cloudlet> successfullySubmitted = new ArrayList<Cloudlet>();
 
 		if (CloudSim.getOpta()) {
-			String SOLVER_CONFIG = "com/optacloud/SolverConfiguration/SolverConfigVmCloudlet";
-			SolverFactory<VmCloudletBalance> solverFactory = SolverFactory.createFromXmlResource(SOLVER_CONFIG);
-
-			Solver<VmCloudletBalance> solver = solverFactory.buildSolver();
+			Solver<VmCloudletBalance> solver = SolverCache.getSolver(SolverCache.SOLVER_CONFIG_VMCLOUDLET);
 
 			VmCloudletBalance unsolvedVmCloudlet = new VmCloudletBalance(getVmsCreatedList(), getCloudletList());
 
-			VmCloudletBalance solvedVmCloudet = solver.solve(unsolvedVmCloudlet);
+			SolverTelemetry.Recorder<VmCloudletBalance> recorder =
+					SolverTelemetry.start(solver, SolverCache.SOLVER_CONFIG_VMCLOUDLET, getCloudletList().size());
+			try {
+				VmCloudletBalance solvedVmCloudet = solver.solve(unsolvedVmCloudlet);
 
-			for (Cloudlet cl : solvedVmCloudet.getCloudletlist()) {
-				if (cl.getVm() != null) {
-					Vm vm = VmList.getById(getVmsCreatedList(), cl.getVm().getId());
+				for (Cloudlet cl : solvedVmCloudet.getCloudletlist()) {
+					if (cl.getVm() != null) {
+						Vm vm = VmList.getById(getVmsCreatedList(), cl.getVm().getId());
 
-					if (!Log.isDisabled()) {
-						Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Sending cloudlet ",
-								cl.getCloudletId(), " to VM #", vm.getId());
-					}
+						if (!Log.isDisabled()) {
+							Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Sending cloudlet ",
+									cl.getCloudletId(), " to VM #", vm.getId());
+						}
 
-					Cloudlet cloudlet = getCloudletList().get(cl.getCloudletId());
-					cloudlet.setVmId(vm.getId());
-					sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
-					cloudletsSubmitted++;
-					getCloudletSubmittedList().add(cloudlet);
-					successfullySubmitted.add(cloudlet);
-				} else {
-					if(!Log.isDisabled()) {
-						Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Postponing execution of cloudlet ",
-								cl.getCloudletId(), ": bount VM not available");
+						Cloudlet cloudlet = getCloudletList().get(cl.getCloudletId());
+						cloudlet.setVmId(vm.getId());
+						sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
+						cloudletsSubmitted++;
+						getCloudletSubmittedList().add(cloudlet);
+						successfullySubmitted.add(cloudlet);
+					} else {
+						if(!Log.isDisabled()) {
+							Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Postponing execution of cloudlet ",
+									cl.getCloudletId(), ": bount VM not available");
+						}
 					}
 				}
+				recorder.finish(successfullySubmitted.size());
+			} finally {
+				//Si el solve ha fallat, treure el listener del solver compartit
+				recorder.abort();
 			}
 		} else {
 			int vmIndex = 0;
@@ -470,7 +506,7 @@ public class DatacenterBroker extends SimEntity {
 		}
 
 		// remove submitted cloudlets from waiting list
-		getCloudletList().removeAll(successfullySubmitted);
+		getCloudletList().removeAll(new HashSet<>(successfullySubmitted));
 	}
 
 	/**
@@ -506,6 +542,10 @@ public class DatacenterBroker extends SimEntity {
 	public void startEntity() {
 		Log.printConcatLine(getName(), " is starting...");
 		schedule(getId(), 0, CloudSimTags.RESOURCE_CHARACTERISTICS_REQUEST);
+		//Evitar que el primer enviament de cloudlets pagui la càrrega de classes i el JIT del solver
+		if (CloudSim.getOpta()) {
+			SolverCache.warmUpVmCloudlet();
+		}
 	}
 
 	/**
@@ -12,6 +12,7 @@ import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.lists.HostList;
+import org.cloudbus.cloudsim.lists.IdIndexedList;
 import org.cloudbus.cloudsim.lists.PeList;
 import org.cloudbus.cloudsim.power.models.PowerModel;
 
@@ -131,7 +132,10 @@ public class DatacenterCharacteristics {
 		setId(-1);
 		setArchitecture(architecture);
 		setOs(os);
-		setHostList(hostList);
+		//Còpia indexada per id, per a les consultes de HostList.getById
+		IdIndexedList<Host> hosts = new IdIndexedList<Host>(Host::getId);
+		hosts.addAll(hostList);
+		setHostList(hosts);
                 /*@todo allocationPolicy is not a parameter. It is setting
                 the attribute to itself, what has not effect. */
 		setAllocationPolicy(allocationPolicy);
@@ -0,0 +1,102 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Index of the free PEs of each host of an allocation policy, ordered from the host with more
+ * free PEs to the host with less (ties go to the host that comes first in the host list).
+ * Finding the host with more free PEs and updating a host are O(log H), and the position of a
+ * host is found without scanning the host list.
+ *
+ * @see VmAllocationPolicySimple
+ */
+public class FreePesIndex {
+
+	/** The hosts, in the order of the allocation policy host list. */
+	private final List<Host> hostList;
+
+	/** The position of each host in {@link #hostList}. */
+	private final Map<Host, Integer> positions;
+
+	/** The number of free PEs of each host, by position. */
+	private final int[] freePes;
+
+	/** The host positions, from more to less free PEs. */
+	private final TreeSet<Integer> order;
+
+	/**
+	 * Creates an index where every PE of every host is free.
+	 *
+	 * @param list the host list of the allocation policy
+	 */
+	public FreePesIndex(List<? extends Host> list) {
+		hostList = new ArrayList<Host>(list);
+		positions = new HashMap<Host, Integer>(list.size());
+		freePes = new int[list.size()];
+		order = new TreeSet<Integer>((a, b) -> freePes[a] != freePes[b]
+				? Integer.compare(freePes[b], freePes[a]) : Integer.compare(a, b));
+		for (int i = 0; i < hostList.size(); ++i) {
+			Host host = hostList.get(i);
+			positions.put(host, i);
+			freePes[i] = host.getNumberOfPes();
+			order.add(i);
+		}
+	}
+
+	/**
+	 * Gets the position of a host in the host list.
+	 *
+	 * @param host the host
+	 * @return the position, -1 if the host is not indexed
+	 */
+	public int indexOf(Host host) {
+		Integer idx = positions.get(host);
+		return idx == null ? -1 : idx;
+	}
+
+	public Host getHost(int idx) {
+		return hostList.get(idx);
+	}
+
+	public int getFreePes(int idx) {
+		return freePes[idx];
+	}
+
+	public int size() {
+		return freePes.length;
+	}
+
+	/**
+	 * Adds (or removes, if negative) free PEs to a host, keeping the order.
+	 *
+	 * @param idx the position of the host
+	 * @param pes the number of PEs that become free
+	 */
+	public void addFreePes(int idx, int pes) {
+		order.remove(idx);
+		freePes[idx] += pes;
+		order.add(idx);
+	}
+
+	/**
+	 * Gets the host positions from more to less free PEs. The returned iterable must not be
+	 * used after calling {@link #addFreePes(int, int)}.
+	 *
+	 * @return the host positions, the host with more free PEs first
+	 */
+	public Iterable<Integer> byMostFree() {
+		return order;
+	}
+}
@@ -16,6 +16,7 @@ import org.cloudbus.cloudsim.power.models.PowerModel;
 import org.cloudbus.cloudsim.power.models.PowerModelLinear;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
 import org.cloudbus.cloudsim.provisioners.RamProvisioner;
+import org.optaplanner.core.api.domain.lookup.PlanningId;
 
 /**
  * A Host is a Physical Machine (PM) inside a Datacenter. It is also called as a Server.
@@ -67,12 +68,8 @@ public class Host {
 	 //The power model used by the host.
 	private PowerModel powerModel;
 
-	//Historial d'utilització
-	private List<Integer> mips_history;
-	private List<Integer> ram_history;
-	private List<Integer> bw_history;
-	private List<Integer> storage_history;
-	private List<Double> power_history;
+	//Historial d'utilització (una mostra per ronda d'allotjament)
+	private HostUsageHistory usageHistory;
 
 	public Host() {
 	}
@@ -109,11 +106,7 @@ public class Host {
 		ramUtilizationCt = 0.0;
 		bwUtilizationCt = 0.0;
 		setTotalStorage(storage);
-		mips_history = new ArrayList<>();
-		ram_history = new ArrayList<>();
-		bw_history = new ArrayList<>();
-		storage_history = new ArrayList<>();
-		power_history = new ArrayList<>();
+		usageHistory = new HostUsageHistory();
 	}
 
 	/**
@@ -501,6 +494,7 @@ public class Host {
 	 * 
 	 * @return the host id
 	 */
+	@PlanningId
 	public int getId() {
 		return id;
 	}
@@ -854,44 +848,34 @@ public class Host {
 	}
 
 	//Obtenció de dades d'historial
-	public List<Integer> getStorage_history() {
-		return storage_history;
+	public HostUsageHistory getUsageHistory() {
+		return usageHistory;
 	}
 
-	public void addStorage_history(Integer entry) {
-		getStorage_history().add(entry);
+	//p.ex. new HostUsageHistory(capacitat) per guardar només les últimes mostres
+	public void setUsageHistory(HostUsageHistory usageHistory) {
+		this.usageHistory = usageHistory;
 	}
 
-	public List<Integer> getRam_history() {
-		return ram_history;
+	//Vistes de l'historial com a List (només lectura)
+	public List<Integer> getStorage_history() {
+		return getUsageHistory().storageView();
 	}
 
-	public void addRam_history(Integer entry) {
-		getRam_history().add(entry);
+	public List<Integer> getRam_history() {
+		return getUsageHistory().ramView();
 	}
 
 	public List<Integer> getBw_history() {
-		return bw_history;
-	}
-
-	public void addBw_history(Integer entry) {
-		getBw_history().add(entry);
+		return getUsageHistory().bwView();
 	}
 
 	public List<Integer> getMips_history() {
-		return mips_history;
-	}
-
-	public void addMips_history(Integer entry) {
-		getMips_history().add(entry);
+		return getUsageHistory().mipsView();
 	}
 
 	public List<Double> getPower_history() {
-		return power_history;
-	}
-
-	public void addPower_history(Double entry) {
-		getPower_history().add(entry);
+		return getUsageHistory().powerView();
 	}
 
 }
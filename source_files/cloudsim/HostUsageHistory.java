@@ -0,0 +1,251 @@
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Historial d'utilització d'un host en columnes de tipus primitiu: una mostra per ronda
+ * d'allotjament amb l'instant, MIPS, RAM, BW, storage i potència.
+ * <p>
+ * Per defecte els arrays creixen (doblant la mida). Amb una capacitat fixa funciona com un
+ * buffer circular que només guarda les últimes mostres, de manera que la memòria no creix
+ * en simulacions llargues. Els índexs sempre van de la mostra més antiga guardada (0) a la
+ * més recent (size()-1).
+ */
+public class HostUsageHistory {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private double[] time;
+	private int[] mips;
+	private int[] ram;
+	private int[] bw;
+	private int[] storage;
+	private double[] power;
+
+	/** Si és true, la capacitat és fixa i les mostres noves sobreescriuen les més antigues */
+	private final boolean ring;
+
+	/** Posició de la mostra més antiga (només és diferent de 0 en mode circular) */
+	private int head;
+
+	private int size;
+
+	/** Mostres afegides en total, incloses les sobreescrites */
+	private long totalCount;
+
+	/**
+	 * Creates a growable history.
+	 */
+	public HostUsageHistory() {
+		this(INITIAL_CAPACITY, false);
+	}
+
+	/**
+	 * Creates a ring-buffer history that keeps only the last samples.
+	 *
+	 * @param capacity the number of samples kept
+	 */
+	public HostUsageHistory(int capacity) {
+		this(capacity, true);
+	}
+
+	private HostUsageHistory(int capacity, boolean ring) {
+		if (capacity <= 0) throw new IllegalArgumentException("History capacity must be greater than 0");
+		this.ring = ring;
+		time = new double[capacity];
+		mips = new int[capacity];
+		ram = new int[capacity];
+		bw = new int[capacity];
+		storage = new int[capacity];
+		power = new double[capacity];
+	}
+
+	/**
+	 * Adds a sample.
+	 *
+	 * @param t the simulation time of the sample
+	 * @param mipsUsed the MIPS used by the VMs of the host
+	 * @param ramUsed the RAM used by the VMs of the host
+	 * @param bwUsed the BW used by the VMs of the host
+	 * @param storageUsed the storage used by the VMs of the host
+	 * @param powerUsed the power consumed by the host
+	 */
+	public void add(double t, int mipsUsed, int ramUsed, int bwUsed, int storageUsed, double powerUsed) {
+		int pos;
+		if (size == time.length) {
+			if (ring) {
+				pos = head;
+				head = (head + 1) % time.length;
+				--size;
+			} else {
+				grow();
+				pos = size;
+			}
+		} else pos = (head + size) % time.length;
+
+		time[pos] = t;
+		mips[pos] = mipsUsed;
+		ram[pos] = ramUsed;
+		bw[pos] = bwUsed;
+		storage[pos] = storageUsed;
+		power[pos] = powerUsed;
+		++size;
+		++totalCount;
+	}
+
+	//Només en mode creixent, on head és sempre 0
+	private void grow() {
+		int capacity = time.length * 2;
+		time = Arrays.copyOf(time, capacity);
+		mips = Arrays.copyOf(mips, capacity);
+		ram = Arrays.copyOf(ram, capacity);
+		bw = Arrays.copyOf(bw, capacity);
+		storage = Arrays.copyOf(storage, capacity);
+		power = Arrays.copyOf(power, capacity);
+	}
+
+	private int position(int i) {
+		if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+		return (head + i) % time.length;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isRing() {
+		return ring;
+	}
+
+	public int getCapacity() {
+		return time.length;
+	}
+
+	//Mostres afegides des de la creació, incloses les que el buffer circular ja ha descartat
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	public void clear() {
+		head = 0;
+		size = 0;
+		totalCount = 0;
+	}
+
+	public double getTime(int i) {
+		return time[position(i)];
+	}
+
+	public int getMips(int i) {
+		return mips[position(i)];
+	}
+
+	public int getRam(int i) {
+		return ram[position(i)];
+	}
+
+	public int getBw(int i) {
+		return bw[position(i)];
+	}
+
+	public int getStorage(int i) {
+		return storage[position(i)];
+	}
+
+	public double getPower(int i) {
+		return power[position(i)];
+	}
+
+	//Exportació en bloc: còpia de cada columna en ordre cronològic
+
+	public double[] getTimes() {
+		return copy(time, new double[size]);
+	}
+
+	public int[] getMipsValues() {
+		return copy(mips, new int[size]);
+	}
+
+	public int[] getRamValues() {
+		return copy(ram, new int[size]);
+	}
+
+	public int[] getBwValues() {
+		return copy(bw, new int[size]);
+	}
+
+	public int[] getStorageValues() {
+		return copy(storage, new int[size]);
+	}
+
+	public double[] getPowerValues() {
+		return copy(power, new double[size]);
+	}
+
+	//Copia les dues meitats del buffer circular (o l'única, si no ha donat la volta)
+	private <T> T copy(T src, T dest) {
+		int first = Math.min(size, time.length - head);
+		System.arraycopy(src, head, dest, 0, first);
+		System.arraycopy(src, 0, dest, first, size - first);
+		return dest;
+	}
+
+	/**
+	 * Writes the history as CSV rows (time;mips;ram;bw;storage;power), oldest first.
+	 *
+	 * @param out the destination
+	 * @param prefix text written at the start of each row (e.g. the host id and a separator), may be empty
+	 * @throws IOException if the destination fails
+	 */
+	public void writeCsv(Appendable out, String prefix) throws IOException {
+		for (int i = 0; i < size; ++i) {
+			int p = (head + i) % time.length;
+			out.append(prefix).append(Double.toString(time[p])).append(';')
+					.append(Integer.toString(mips[p])).append(';')
+					.append(Integer.toString(ram[p])).append(';')
+					.append(Integer.toString(bw[p])).append(';')
+					.append(Integer.toString(storage[p])).append(';')
+					.append(Double.toString(power[p])).append('\n');
+		}
+	}
+
+	//Vistes de només lectura, per al codi que tractava l'historial com a List
+
+	public List<Integer> mipsView() {
+		return new AbstractList<Integer>() {
+			@Override public Integer get(int i) { return getMips(i); }
+			@Override public int size() { return size; }
+		};
+	}
+
+	public List<Integer> ramView() {
+		return new AbstractList<Integer>() {
+			@Override public Integer get(int i) { return getRam(i); }
+			@Override public int size() { return size; }
+		};
+	}
+
+	public List<Integer> bwView() {
+		return new AbstractList<Integer>() {
+			@Override public Integer get(int i) { return getBw(i); }
+			@Override public int size() { return size; }
+		};
+	}
+
+	public List<Integer> storageView() {
+		return new AbstractList<Integer>() {
+			@Override public Integer get(int i) { return getStorage(i); }
+			@Override public int size() { return size; }
+		};
+	}
+
+	public List<Double> powerView() {
+		return new AbstractList<Double>() {
+			@Override public Double get(int i) { return getPower(i); }
+			@Override public int size() { return size; }
+		};
+	}
+}
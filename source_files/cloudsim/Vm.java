@@ -10,6 +10,7 @@ package org.cloudbus.cloudsim;
 import com.optacloud.domain.HostStrengthComparatorClass;
 import com.optacloud.domain.VmDifficultyComparatorClass;
 import org.optaplanner.core.api.domain.entity.PlanningEntity;
+import org.optaplanner.core.api.domain.lookup.PlanningId;
 import org.optaplanner.core.api.domain.variable.PlanningVariable;
 
 import java.util.ArrayList;
@@ -284,6 +285,8 @@ public class Vm {
 	 * 
 	 * @return string uid
 	 */
+	//Identificador per als move threads (moveThreadCount)
+	@PlanningId
 	public String getUid() {
 		return uid;
 	}
@@ -51,6 +51,34 @@ public abstract class VmAllocationPolicy {
         //Retorna un vector de booleans, vector[x] true si la vm x s'ha allotjat
         public abstract boolean[] allocateHostForVm(List<Vm> vmlist);
 
+        //Es crida al començar la simulació; les polítiques amb solver hi poden fer una resolució d'escalfament
+        public void warmUp() {
+        }
+
+        //Torna a planificar una llista de VMs (les ja allotjades i les noves) sense crear-les ni moure-les.
+        //Retorna el host de cada VM (null si no en té); per defecte cada VM es queda al seu host actual
+        public Host[] planHostsForVm(List<Vm> vmList) {
+                Host[] hosts = new Host[vmList.size()];
+                for (int i = 0; i < hosts.length; ++i) hosts[i] = getHost(vmList.get(i));
+                return hosts;
+        }
+
+        //Es crida quan el broker ha aplicat les migracions de l'últim planHostsForVm(List)
+        public void replanApplied() {
+        }
+
+        //Temps simulat després del qual el datacenter ha d'aplicar el pla en segon pla de l'últim
+        //allocateHostForVm(List) (vegeu takeBackgroundPlan); negatiu si no n'hi ha cap
+        public double getBackgroundPlanDelay() {
+                return -1;
+        }
+
+        //Espera el pla en segon pla d'un lot i retorna les VMs que han de canviar de host, en ordre.
+        //Retorna null si no n'hi ha o si un lot posterior l'ha descartat
+        public Map<Vm, Host> takeBackgroundPlan(List<Vm> vmList) {
+                return null;
+        }
+
 	/**
 	 * Allocates a specified host for a given VM.
 	 * 
@@ -8,7 +8,6 @@
 
 package org.cloudbus.cloudsim;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,7 +34,7 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	private Map<String, Integer> usedPes;
 
 	/** The number of free Pes for each host from {@link #getHostList() }. */
-	private List<Integer> freePes;
+	private FreePesIndex freePes;
 
 	/**
 	 * Creates a new VmAllocationPolicySimple object.
@@ -47,11 +46,7 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	public VmAllocationPolicySimple(List<? extends Host> list) {
 		super(list);
 
-		setFreePes(new ArrayList<Integer>());
-		for (Host host : getHostList()) {
-			getFreePes().add(host.getNumberOfPes());
-
-		}
+		setFreePes(new FreePesIndex(getHostList()));
 
 		setVmTable(new HashMap<String, Host>());
 		setUsedPes(new HashMap<String, Integer>());
@@ -69,42 +64,20 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	public boolean allocateHostForVm(Vm vm) {
 		int requiredPes = vm.getNumberOfPes();
 		boolean result = false;
-		int tries = 0;
-		List<Integer> freePesTmp = new ArrayList<Integer>();
-		for (Integer freePes : getFreePes()) {
-			freePesTmp.add(freePes);
-		}
 
 		if (!getVmTable().containsKey(vm.getUid())) { // if this vm was not created
-			do {// we still trying until we find a host or until we try all of them
-				int moreFree = Integer.MIN_VALUE;
-				int idx = -1;
-
-				// we want the host with less pes in use
-				for (int i = 0; i < freePesTmp.size(); i++) {
-					if (freePesTmp.get(i) > moreFree) {
-						moreFree = freePesTmp.get(i);
-						idx = i;
-					}
-					//first fit
-					//if (idx != -1) break;
-				}
-
-				Host host = getHostList().get(idx);
+			// we want the host with less pes in use; we still trying until we find a host or until we try all of them
+			for (int idx : getFreePes().byMostFree()) {
+				Host host = getFreePes().getHost(idx);
 				result = host.vmCreate(vm);
 
 				if (result) { // if vm were succesfully created in the host
 					getVmTable().put(vm.getUid(), host);
 					getUsedPes().put(vm.getUid(), requiredPes);
-					getFreePes().set(idx, getFreePes().get(idx) - requiredPes);
-					result = true;
+					getFreePes().addFreePes(idx, -requiredPes);
 					break;
-				} else {
-					freePesTmp.set(idx, Integer.MIN_VALUE);
 				}
-				tries++;
-			} while (!result && tries < getFreePes().size());
-
+			}
 		}
 
 		return result;
@@ -120,11 +93,10 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	@Override
 	public void deallocateHostForVm(Vm vm) {
 		Host host = getVmTable().remove(vm.getUid());
-		int idx = getHostList().indexOf(host);
 		int pes = getUsedPes().remove(vm.getUid());
 		if (host != null) {
 			host.vmDestroy(vm);
-			getFreePes().set(idx, getFreePes().get(idx) + pes);
+			getFreePes().addFreePes(getFreePes().indexOf(host), pes);
 		}
 	}
 
@@ -179,7 +151,7 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	 * 
 	 * @return the free pes
 	 */
-	protected List<Integer> getFreePes() {
+	protected FreePesIndex getFreePes() {
 		return freePes;
 	}
 
@@ -188,7 +160,7 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	 * 
 	 * @param freePes the new free pes
 	 */
-	protected void setFreePes(List<Integer> freePes) {
+	protected void setFreePes(FreePesIndex freePes) {
 		this.freePes = freePes;
 	}
 
@@ -204,9 +176,8 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 			getVmTable().put(vm.getUid(), host);
 
 			int requiredPes = vm.getNumberOfPes();
-			int idx = getHostList().indexOf(host);
 			getUsedPes().put(vm.getUid(), requiredPes);
-			getFreePes().set(idx, getFreePes().get(idx) - requiredPes);
+			getFreePes().addFreePes(getFreePes().indexOf(host), -requiredPes);
 
 			Log.formatLine(
 					"%.2f: VM #" + vm.getId() + " has been allocated to the host #" + host.getId(),
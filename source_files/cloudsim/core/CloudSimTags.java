@@ -284,6 +284,26 @@ public class CloudSimTags {
 	//Aturar els cloudlets executant-se a una VM
 	public static final int PAUSE_VMCLOUDLETS = BASE + 52;
 
+	//Resultat de la creació de tota una llista de VMs (motor OptaPlanner), en un sol esdeveniment:
+	//int[] {datacenterId, vmId0, resultat0, vmId1, resultat1, ...}
+	public static final int VM_CREATE_BATCH_ACK = BASE + 53;
+
+	//Aturar els cloudlets de diverses VMs en un sol esdeveniment: List<Vm> amb les VMs afectades
+	public static final int PAUSE_VMCLOUDLETS_BATCH = BASE + 54;
+
+	//Replanificar VMs ja allotjades i noves sense destruir-les: List<Vm> amb totes les VMs
+	public static final int VM_REPLAN = BASE + 55;
+
+	//Resultat d'una replanificació, només les VMs que canvien de host (o s'han de crear):
+	//int[] {datacenterId, vmId0, hostId0, vmId1, hostId1, ...}
+	public static final int VM_REPLAN_RESULT = BASE + 56;
+
+	//El datacenter aplica el pla millorat d'una resolució en segon pla: List<Vm> amb el lot creat
+	public static final int VM_BACKGROUND_PLAN = BASE + 57;
+
+	//El broker ha aplicat totes les migracions d'una replanificació (sense dades)
+	public static final int VM_REPLAN_DONE = BASE + 58;
+
 	/** Private Constructor. */
 	private CloudSimTags() {
 		throw new UnsupportedOperationException("CloudSimTags cannot be instantiated");
@@ -31,7 +31,11 @@ public class HostList {
 	 * @pre id >= 0
 	 * @post $none
 	 */
+	@SuppressWarnings("unchecked")
 	public static <T extends Host> T getById(List<T> hostList, int id) {
+		if (hostList instanceof IdIndexedList) {
+			return ((IdIndexedList<T>) hostList).getById(id);
+		}
 		for (T host : hostList) {
 			if (host.getId() == id) {
 				return host;
@@ -0,0 +1,178 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.lists;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * List of entities (VMs, cloudlets, hosts) that keeps an index by entity id, so
+ * {@link VmList#getById(java.util.List, int)}, {@link CloudletList#getById(java.util.List, int)} and
+ * {@link HostList#getById(java.util.List, int)} are O(1) instead of a scan of the list.
+ * <p>
+ * It keeps the order of the list and allows repeated ids: the index points to the first
+ * element with each id. The id of an element must not change while it is in the list.
+ *
+ * @param <T> the type of the entities
+ */
+public class IdIndexedList<T> extends AbstractList<T> implements RandomAccess {
+
+	private final ArrayList<T> elements;
+
+	private final ToIntFunction<? super T> idOf;
+
+	/** Key: id, value: first element with the id */
+	private final Map<Integer, T> index;
+
+	/** Key: id, value: elements with the id, only for the ids that are repeated */
+	private final Map<Integer, Integer> repeated;
+
+	/**
+	 * Creates an empty list.
+	 *
+	 * @param idOf gets the id of an element (e.g. Vm::getId)
+	 */
+	public IdIndexedList(ToIntFunction<? super T> idOf) {
+		this.idOf = idOf;
+		elements = new ArrayList<T>();
+		index = new HashMap<Integer, T>();
+		repeated = new HashMap<Integer, Integer>();
+	}
+
+	/**
+	 * Gets the first element with a given id.
+	 *
+	 * @param id the id
+	 * @return the element, $null if not found
+	 */
+	public T getById(int id) {
+		return index.get(id);
+	}
+
+	/**
+	 * Checks if more than one element of the list has a given id.
+	 *
+	 * @param id the id
+	 * @return true if the id is repeated
+	 */
+	public boolean isRepeated(int id) {
+		return repeated.containsKey(id);
+	}
+
+	@Override
+	public T get(int i) {
+		return elements.get(i);
+	}
+
+	@Override
+	public int size() {
+		return elements.size();
+	}
+
+	@Override
+	public void add(int i, T element) {
+		elements.add(i, element);
+		++modCount;
+		int id = idOf.applyAsInt(element);
+		T first = index.get(id);
+		if (first == null) {
+			index.put(id, element);
+			return;
+		}
+		repeated.merge(id, 2, (n, two) -> n + 1);
+		//Si s'insereix abans del que ja hi era, passa a ser el primer
+		if (i < elements.size() - 1 && elements.indexOf(first) > i) index.put(id, element);
+	}
+
+	@Override
+	public T set(int i, T element) {
+		T old = elements.get(i);
+		if (old == element) return old;
+		unindex(old, i);
+		elements.set(i, element);
+		int id = idOf.applyAsInt(element);
+		T first = index.get(id);
+		if (first == null) index.put(id, element);
+		else {
+			repeated.merge(id, 2, (n, two) -> n + 1);
+			if (elements.indexOf(first) > i) index.put(id, element);
+		}
+		return old;
+	}
+
+	@Override
+	public T remove(int i) {
+		T old = elements.remove(i);
+		++modCount;
+		unindex(old, -1);
+		return old;
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super T> filter) {
+		if (!elements.removeIf(filter)) return false;
+		++modCount;
+		reindex();
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		return removeIf(c::contains);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		return removeIf(e -> !c.contains(e));
+	}
+
+	@Override
+	public void clear() {
+		elements.clear();
+		index.clear();
+		repeated.clear();
+		++modCount;
+	}
+
+	//Després d'esborrar en bloc és més barat refer l'índex que treure'n els elements un a un
+	private void reindex() {
+		index.clear();
+		repeated.clear();
+		for (T e : elements) {
+			int id = idOf.applyAsInt(e);
+			if (index.putIfAbsent(id, e) != null) repeated.merge(id, 2, (n, two) -> n + 1);
+		}
+	}
+
+	//Treu un element de l'índex; si l'id és repetit busca el següent element amb el mateix id
+	private void unindex(T element, int skip) {
+		int id = idOf.applyAsInt(element);
+		Integer n = repeated.get(id);
+		if (n == null) {
+			index.remove(id);
+			return;
+		}
+		if (n == 2) repeated.remove(id);
+		else repeated.put(id, n - 1);
+		if (index.get(id) != element) return;
+		for (int j = 0; j < elements.size(); ++j) {
+			T e = elements.get(j);
+			if (j != skip && idOf.applyAsInt(e) == id) {
+				index.put(id, e);
+				return;
+			}
+		}
+	}
+}
@@ -46,7 +46,11 @@ public class VmList {
          * effect on the entire project and in the creation of simulations
          * that has to be priorly assessed.
 	 */
+	@SuppressWarnings("unchecked")
 	public static <T extends Vm> T getById(List<T> vmList, int id) {
+		if (vmList instanceof IdIndexedList) {
+			return ((IdIndexedList<T>) vmList).getById(id);
+		}
 		for (T vm : vmList) {
 			if (vm.getId() == id) {
 				return vm;
@@ -65,7 +69,12 @@ public class VmList {
 	 * @pre $none
 	 * @post $none
 	 */
+	@SuppressWarnings("unchecked")
 	public static <T extends Vm> T getByIdAndUserId(List<T> vmList, int id, int userId) {
+		if (vmList instanceof IdIndexedList && !((IdIndexedList<T>) vmList).isRepeated(id)) {
+			T vm = ((IdIndexedList<T>) vmList).getById(id);
+			return vm != null && vm.getUserId() == userId ? vm : null;
+		}
 		for (T vm : vmList) {
 			if (vm.getId() == id && vm.getUserId() == userId) {
 				return vm;
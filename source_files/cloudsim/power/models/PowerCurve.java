@@ -0,0 +1,128 @@
+package org.cloudbus.cloudsim.power.models;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Corba de potència precalculada d'un PowerModel, per als càlculs de puntuació que avaluen
+ * la potència de cada host a cada moviment. No fa cap crida virtual ni té try/catch:
+ * <ul>
+ * <li>PowerModelLinear, Cubic, Square i Sqrt: la mateixa fórmula tancada del model, amb les constants copiades;</li>
+ * <li>PowerModelSpecPower: els 11 punts de getPowerData en un array, amb la mateixa interpolació;</li>
+ * <li>qualsevol altre model: 1001 mostres (cada 0.1%) amb interpolació lineal, que és una aproximació.</li>
+ * </ul>
+ * Les corbes es guarden per instància de model (of), ja que molts hosts comparteixen el mateix model.
+ */
+public final class PowerCurve {
+
+	private static final int LINEAR = 0;
+	private static final int SQUARE = 1;
+	private static final int CUBIC = 2;
+	private static final int SQRT = 3;
+	private static final int SPEC_POWER = 4;
+	private static final int SAMPLED = 5;
+
+	/** Mostres de la corba d'un model desconegut (0%, 0.1%, ..., 100%) */
+	private static final int SAMPLES = 1000;
+
+	/** Key: instància del model, value: corba */
+	private static final Map<PowerModel, PowerCurve> curves = Collections.synchronizedMap(new WeakHashMap<PowerModel, PowerCurve>());
+
+	private final PowerModel model;
+	private final int type;
+	private final double staticPower;
+	private final double constant;
+	private final double[] data;
+
+	private PowerCurve(PowerModel model, int type, double staticPower, double constant, double[] data) {
+		this.model = model;
+		this.type = type;
+		this.staticPower = staticPower;
+		this.constant = constant;
+		this.data = data;
+	}
+
+	/**
+	 * Gets the curve of a power model, building it the first time.
+	 *
+	 * @param model the power model
+	 * @return the curve, null if the model is null
+	 */
+	public static PowerCurve of(PowerModel model) {
+		if (model == null) return null;
+		PowerCurve curve = curves.get(model);
+		if (curve == null) {
+			curve = build(model);
+			curves.put(model, curve);
+		}
+		return curve;
+	}
+
+	private static PowerCurve build(PowerModel model) {
+		if (model instanceof PowerModelLinear) {
+			PowerModelLinear m = (PowerModelLinear) model;
+			return new PowerCurve(model, LINEAR, m.getStaticPower(), m.getConstant(), null);
+		}
+		if (model instanceof PowerModelSquare) {
+			PowerModelSquare m = (PowerModelSquare) model;
+			return new PowerCurve(model, SQUARE, m.getStaticPower(), m.getConstant(), null);
+		}
+		if (model instanceof PowerModelCubic) {
+			PowerModelCubic m = (PowerModelCubic) model;
+			return new PowerCurve(model, CUBIC, m.getStaticPower(), m.getConstant(), null);
+		}
+		if (model instanceof PowerModelSqrt) {
+			PowerModelSqrt m = (PowerModelSqrt) model;
+			return new PowerCurve(model, SQRT, m.getStaticPower(), m.getConstant(), null);
+		}
+		if (model instanceof PowerModelSpecPower) {
+			double[] data = new double[11];
+			for (int i = 0; i <= 10; ++i) data[i] = ((PowerModelSpecPower) model).getPowerData(i);
+			return new PowerCurve(model, SPEC_POWER, 0, 0, data);
+		}
+		double[] data = new double[SAMPLES + 1];
+		for (int i = 0; i <= SAMPLES; ++i) data[i] = model.getPower((double) i / SAMPLES);
+		return new PowerCurve(model, SAMPLED, 0, 0, data);
+	}
+
+	/**
+	 * Gets the power consumption for a given utilization.
+	 *
+	 * @param utilization the utilization, between 0 and 1
+	 * @return the power consumption
+	 * @throws IllegalArgumentException if the utilization is out of range (thrown by the model)
+	 */
+	public double getPower(double utilization) {
+		if (utilization < 0 || utilization > 1) return model.getPower(utilization);
+		switch (type) {
+			case LINEAR:
+				if (utilization == 0) return 0;
+				return staticPower + constant * utilization * 100;
+			case SQUARE:
+				if (utilization == 0) return 0;
+				return staticPower + constant * Math.pow(utilization * 100, 2);
+			case CUBIC:
+				if (utilization == 0) return 0;
+				return staticPower + constant * Math.pow(utilization * 100, 3);
+			case SQRT:
+				if (utilization == 0) return 0;
+				return staticPower + constant * Math.sqrt(utilization * 100);
+			case SPEC_POWER:
+				//Mateixos càlculs que PowerModelSpecPower.getPower, perquè el resultat sigui idèntic
+				if (utilization % 0.1 == 0) return data[(int) (utilization * 10)];
+				int utilization1 = (int) Math.floor(utilization * 10);
+				int utilization2 = (int) Math.ceil(utilization * 10);
+				double delta = (data[utilization2] - data[utilization1]) / 10;
+				return data[utilization1] + delta * (utilization - (double) utilization1 / 10) * 100;
+			default:
+				double x = utilization * SAMPLES;
+				int i = Math.min((int) x, SAMPLES - 1);
+				return data[i] + (data[i + 1] - data[i]) * (x - i);
+		}
+	}
+
+	public PowerModel getModel() {
+		return model;
+	}
+}
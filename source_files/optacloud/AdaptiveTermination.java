@@ -0,0 +1,134 @@
+package com.optacloud;
+
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.event.SolverEventListener;
+
+import java.util.function.Predicate;
+
+/**
+ * Política de terminació per als solvers reutilitzats de SolverCache. El temps màxim del XML
+ * (secondsSpentLimit) es manté com a límit superior, però cada solve s'atura abans:
+ * <ul>
+ * <li>quan s'esgota un pressupost proporcional al número d'entitats (baseMillis + millisPerEntity*n),</li>
+ * <li>quan fa unimprovedMillis que la millor solució (ja inicialitzada) no millora,</li>
+ * <li>immediatament, quan la millor solució arriba a la cota inferior del problema.</li>
+ * </ul>
+ * La terminació es fa amb Solver.terminateEarly() des d'un fil vigilant. Solver.solve() esborra la
+ * petició de terminació quan comença, per tant el vigilant la repeteix fins que el solve acaba; i solve()
+ * no retorna fins que el vigilant ha acabat, de manera que cap petició arriba al solve següent.
+ */
+public class AdaptiveTermination {
+
+    private final long baseMillis;
+    private final long millisPerEntity;
+    private final long maxMillis;
+    private final long unimprovedMillis;
+
+    //Interval entre peticions de terminació mentre el solve no s'atura
+    private static final long RETRY_MILLIS = 10L;
+
+    /**
+     * Creates a new AdaptiveTermination object.
+     *
+     * @param baseMillis the time budget of an empty batch
+     * @param millisPerEntity the time budget added per planning entity
+     * @param maxMillis the maximum time budget
+     * @param unimprovedMillis the time without a new best solution after which the solve stops
+     */
+    public AdaptiveTermination(long baseMillis, long millisPerEntity, long maxMillis, long unimprovedMillis) {
+        this.baseMillis = baseMillis;
+        this.millisPerEntity = millisPerEntity;
+        this.maxMillis = maxMillis;
+        this.unimprovedMillis = unimprovedMillis;
+    }
+
+    //Pressupost de temps per a un lot de entityCount entitats
+    public long getBudgetMillis(int entityCount) {
+        return Math.min(maxMillis, baseMillis + millisPerEntity*entityCount);
+    }
+
+    /**
+     * Resol el problema aplicant la política de terminació.
+     *
+     * @param solver the solver, not used concurrently
+     * @param problem the problem to solve
+     * @param entityCount the number of planning entities in the problem
+     * @param lowerBoundReached tells if a best solution has reached the lower bound, null if there is none
+     * @return the best solution
+     */
+    public <S> S solve(final Solver<S> solver, S problem, int entityCount, final Predicate<S> lowerBoundReached) {
+        final long start = System.currentTimeMillis();
+        final long deadline = start + getBudgetMillis(entityCount);
+        //Instant de l'última millora, -1 mentre la solució no està inicialitzada
+        final long[] lastImprovement = {-1L};
+        final Object lock = new Object();
+        //false quan el solve ha acabat; protegit per lock
+        final boolean[] active = {true};
+
+        SolverEventListener<S> listener = event -> {
+            if (!event.getNewBestScore().isSolutionInitialized()) return;
+            synchronized (lock) {
+                lastImprovement[0] = System.currentTimeMillis();
+                lock.notifyAll();
+            }
+            if (lowerBoundReached != null && lowerBoundReached.test(event.getNewBestSolution())) {
+                solver.terminateEarly();
+            }
+        };
+
+        Thread watchdog = new Thread(() -> {
+            try {
+                synchronized (lock) {
+                    while (active[0]) {
+                        long stop = deadline;
+                        if (lastImprovement[0] >= 0) stop = Math.min(stop, lastImprovement[0] + unimprovedMillis);
+                        long now = System.currentTimeMillis();
+                        if (now < stop) {
+                            lock.wait(stop - now);
+                            continue;
+                        }
+                        //Es repeteix per si el solve encara no havia començat i l'ha esborrat
+                        solver.terminateEarly();
+                        lock.wait(RETRY_MILLIS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                //el fil que resol ha estat interromput
+            }
+        }, "AdaptiveTermination");
+        watchdog.setDaemon(true);
+
+        solver.addEventListener(listener);
+        watchdog.start();
+        try {
+            return solver.solve(problem);
+        } finally {
+            synchronized (lock) {
+                active[0] = false;
+                lock.notifyAll();
+            }
+            try {
+                watchdog.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            solver.removeEventListener(listener);
+        }
+    }
+
+    public long getBaseMillis() {
+        return baseMillis;
+    }
+
+    public long getMillisPerEntity() {
+        return millisPerEntity;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public long getUnimprovedMillis() {
+        return unimprovedMillis;
+    }
+}
@@ -0,0 +1,215 @@
+package com.optacloud;
+
+import org.cloudbus.cloudsim.Cloudlet;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Estat de cada cloudlet del broker (en espera, enviat a una VM o rebut) indexat per id del cloudlet.
+ * Cada cloudlet és en un únic estat, i canviar-lo, consultar-lo o treure'l és O(1).
+ * <p>
+ * Cada estat té una vista List amb els cloudlets en ordre d'arribada a l'estat, que és el que
+ * retornen getCloudletList, getCloudletSubmittedList i getCloudletReceivedList del broker.
+ * Afegir un cloudlet a una vista el mou a aquest estat (i el treu de l'anterior); treure'l
+ * d'una vista l'oblida. Els ids dels cloudlets del broker han de ser únics.
+ */
+public class CloudletStateTable {
+
+    public enum State {
+        WAITING, SUBMITTED, RECEIVED
+    }
+
+    //Posició d'un cloudlet dins la vista del seu estat
+    private static final class Slot {
+        Cloudlet cloudlet;
+        State state;
+        int position;
+    }
+
+    /** Key: id del cloudlet */
+    private final Map<Integer, Slot> slots = new HashMap<>();
+
+    private final StateView[] views;
+
+    public CloudletStateTable() {
+        views = new StateView[State.values().length];
+        for (State state : State.values()) views[state.ordinal()] = new StateView(state);
+    }
+
+    /**
+     * Gets the cloudlets in a state, in the order they got to it.
+     *
+     * @param state the state
+     * @return a live view of the cloudlets in the state
+     */
+    public List<Cloudlet> view(State state) {
+        return views[state.ordinal()];
+    }
+
+    /**
+     * Gets the state of a cloudlet.
+     *
+     * @param cloudletId the cloudlet id
+     * @return the state, null if the cloudlet is not in the table
+     */
+    public State getState(int cloudletId) {
+        Slot slot = slots.get(cloudletId);
+        return slot == null ? null : slot.state;
+    }
+
+    /**
+     * Gets a cloudlet by its id, whatever its state.
+     *
+     * @param cloudletId the cloudlet id
+     * @return the cloudlet, null if it is not in the table
+     */
+    public Cloudlet get(int cloudletId) {
+        Slot slot = slots.get(cloudletId);
+        return slot == null ? null : slot.cloudlet;
+    }
+
+    /**
+     * Moves a cloudlet to a state, adding it to the table if it is not there yet.
+     * If the cloudlet is already in the state it keeps its position.
+     *
+     * @param cloudlet the cloudlet
+     * @param state the new state
+     */
+    public void moveTo(Cloudlet cloudlet, State state) {
+        Slot slot = slots.get(cloudlet.getCloudletId());
+        if (slot == null) {
+            slot = new Slot();
+            slots.put(cloudlet.getCloudletId(), slot);
+        } else if (slot.state == state) {
+            slot.cloudlet = cloudlet;
+            return;
+        } else views[slot.state.ordinal()].detach(slot);
+        slot.cloudlet = cloudlet;
+        views[state.ordinal()].attach(slot);
+    }
+
+    /**
+     * Removes a cloudlet from the table.
+     *
+     * @param cloudletId the cloudlet id
+     * @return the removed cloudlet, null if it was not in the table
+     */
+    public Cloudlet remove(int cloudletId) {
+        Slot slot = slots.remove(cloudletId);
+        if (slot == null) return null;
+        views[slot.state.ordinal()].detach(slot);
+        return slot.cloudlet;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Vista d'un estat. Treure un cloudlet deixa un forat a la llista, i els forats s'eliminen
+     * tots alhora (O(n)) el primer cop que es consulta una posició, de manera que moure n
+     * cloudlets d'estat i després recórrer la vista costa O(n) en total.
+     */
+    private final class StateView extends AbstractList<Cloudlet> implements RandomAccess {
+
+        private final State state;
+        private final ArrayList<Slot> items = new ArrayList<>();
+        private int holes;
+
+        StateView(State state) {
+            this.state = state;
+        }
+
+        void attach(Slot slot) {
+            slot.state = state;
+            slot.position = items.size();
+            items.add(slot);
+            ++modCount;
+        }
+
+        void detach(Slot slot) {
+            items.set(slot.position, null);
+            ++holes;
+            ++modCount;
+        }
+
+        private void compact() {
+            if (holes == 0) return;
+            int j = 0;
+            for (Slot slot : items) {
+                if (slot == null) continue;
+                slot.position = j;
+                items.set(j++, slot);
+            }
+            items.subList(j, items.size()).clear();
+            holes = 0;
+        }
+
+        //Slot del cloudlet si és en aquest estat
+        private Slot slotOf(Object o) {
+            if (!(o instanceof Cloudlet)) return null;
+            Slot slot = slots.get(((Cloudlet) o).getCloudletId());
+            return slot != null && slot.state == state && slot.cloudlet == o ? slot : null;
+        }
+
+        @Override
+        public Cloudlet get(int i) {
+            compact();
+            return items.get(i).cloudlet;
+        }
+
+        @Override
+        public int size() {
+            return items.size() - holes;
+        }
+
+        @Override
+        public void add(int i, Cloudlet cloudlet) {
+            if (i != size()) throw new UnsupportedOperationException("Cloudlets can only be appended");
+            moveTo(cloudlet, state);
+        }
+
+        @Override
+        public Cloudlet remove(int i) {
+            Cloudlet cloudlet = get(i);
+            CloudletStateTable.this.remove(cloudlet.getCloudletId());
+            return cloudlet;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return slotOf(o) != null;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            Slot slot = slotOf(o);
+            if (slot == null) return false;
+            CloudletStateTable.this.remove(slot.cloudlet.getCloudletId());
+            return true;
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            boolean changed = false;
+            for (Object o : c) changed |= remove(o);
+            return changed;
+        }
+
+        @Override
+        public void clear() {
+            for (Slot slot : items) {
+                if (slot != null) slots.remove(slot.cloudlet.getCloudletId());
+            }
+            items.clear();
+            holes = 0;
+            ++modCount;
+        }
+    }
+}
@@ -9,6 +9,7 @@
 package com.optacloud;
 
 import com.optacloud.domain.VmCloudletBalance;
+import com.optacloud.telemetry.SolverTelemetry;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
 import org.cloudbus.cloudsim.Log;
@@ -18,10 +19,10 @@ import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.cloudbus.cloudsim.lists.CloudletList;
+import org.cloudbus.cloudsim.lists.IdIndexedList;
 import org.cloudbus.cloudsim.lists.VmList;
 import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 import org.optaplanner.core.api.solver.Solver;
-import org.optaplanner.core.api.solver.SolverFactory;
 
 import java.util.*;
 
@@ -52,6 +53,9 @@ public class DatacenterBrokerDelay extends SimEntity {
 	/** The list of received cloudlet. */
 	protected List<? extends Cloudlet> cloudletReceivedList;
 
+	/** The state of each cloudlet; the three cloudlet lists are views of it. */
+	protected CloudletStateTable cloudletTable;
+
 	/** The number of submitted cloudlets. */
 	protected int cloudletsSubmitted;
 
@@ -89,6 +93,28 @@ public class DatacenterBrokerDelay extends SimEntity {
 	//False: Les VM ja allotjades no es desallotjen
 	private boolean redistribute_level;
 
+	//Amb redistribute_level: True -> es replanifiquen totes les VMs i només es migren les que canvien de host
+	//False -> es destrueixen totes les VMs i es tornen a crear
+	private boolean migrationReplan;
+
+	//Migracions d'una replanificació que encara no han retornat resultat
+	private int pendingMigrations;
+
+	//Migracions de la ronda actual d'una replanificació (VM -> host demanat)
+	private Map<Integer, Integer> replanMoves = new LinkedHashMap<Integer, Integer>();
+
+	//Migracions rebutjades a la ronda actual: es reintenten quan les altres han alliberat el seu host
+	private Map<Integer, Integer> rejectedMoves = new LinkedHashMap<Integer, Integer>();
+
+	//Alguna migració de la ronda actual s'ha completat
+	private boolean replanProgress;
+
+	//Datacenter de la replanificació en curs
+	private int replanDatacenterId;
+
+	//Si és true, submitCloudlets només planifica els cloudlets en espera (els enviats continuen a la seva VM)
+	private boolean keepSubmittedCloudlets;
+
 	//Indica si s'afegiran recursos (cloudlets/vms) al sistema amb un cert delay
 	private boolean delayedSubmit;
 
@@ -110,6 +136,9 @@ public class DatacenterBrokerDelay extends SimEntity {
 	//Lista que indica la entrada de noves VMs/Cloudlets segon el # de Cloudlets finalitzats
 	private List<Integer> scheduleEndCloudlets;
 
+	//Terminació del solver VmCloudlet segons la mida del lot; null per utilitzar el temps fix del XML
+	private AdaptiveTermination termination;
+
 	/**
 	 * Created a new DatacenterBroker object.
 	 *
@@ -121,11 +150,12 @@ public class DatacenterBrokerDelay extends SimEntity {
 	public DatacenterBrokerDelay(String name) throws Exception {
 		super(name);
 
-		setVmList(new ArrayList<Vm>());
-		setVmsCreatedList(new ArrayList<Vm>());
-		setCloudletList(new ArrayList<Cloudlet>());
-		setCloudletSubmittedList(new ArrayList<Cloudlet>());
-		setCloudletReceivedList(new ArrayList<Cloudlet>());
+		setVmList(new IdIndexedList<Vm>(Vm::getId));
+		setVmsCreatedList(new IdIndexedList<Vm>(Vm::getId));
+		cloudletTable = new CloudletStateTable();
+		cloudletList = cloudletTable.view(CloudletStateTable.State.WAITING);
+		cloudletSubmittedList = cloudletTable.view(CloudletStateTable.State.SUBMITTED);
+		cloudletReceivedList = cloudletTable.view(CloudletStateTable.State.RECEIVED);
 
 		cloudletsSubmitted = 0;
 		setVmsRequested(0);
@@ -145,6 +175,7 @@ public class DatacenterBrokerDelay extends SimEntity {
 		scheduleEndCloudlets = new ArrayList<>();
 		delay_act = 0;
 		finished_cloudlets = 0;
+		setTermination(new AdaptiveTermination(20, 5, 5000, 1000));
 	}
 
 	/**
@@ -187,7 +218,7 @@ public class DatacenterBrokerDelay extends SimEntity {
 	 * @post $none
 	 */
 	public void bindCloudletToVm(int cloudletId, int vmId) {
-		CloudletList.getById(getCloudletList(), cloudletId).setVmId(vmId);
+		getCloudletTable().get(cloudletId).setVmId(vmId);
 	}
 
 	@Override
@@ -205,6 +236,14 @@ public class DatacenterBrokerDelay extends SimEntity {
 			case CloudSimTags.VM_CREATE_ACK:
 				processVmCreate(ev);
 				break;
+			// VM list creation answer (OptaPlanner)
+			case CloudSimTags.VM_CREATE_BATCH_ACK:
+				processVmCreateBatch(ev);
+				break;
+			// VM re-planning answer (OptaPlanner)
+			case CloudSimTags.VM_REPLAN_RESULT:
+				processVmReplan(ev);
+				break;
 			// A finished cloudlet returned
 			case CloudSimTags.CLOUDLET_RETURN:
 				processCloudletReturn(ev);
@@ -303,19 +342,102 @@ public class DatacenterBrokerDelay extends SimEntity {
 		int vmId = data[1];
 		int result = data[2];
 
+		processVmCreateResult(datacenterId, vmId, result, VmList.getById(getVmList(), vmId));
+		incrementVmsAcks();
+		processVmsCreated();
+	}
+
+	/**
+	 * Process the ack received due to a request for a VM list creation (OptaPlanner engine).
+	 * The event data is {datacenterId, vmId0, result0, vmId1, result1, ...}.
+	 *
+	 * @param ev a SimEvent object
+	 * @see CloudSimTags#VM_CREATE_BATCH_ACK
+	 */
+	protected void processVmCreateBatch(SimEvent ev) {
+		int[] data = (int[]) ev.getData();
+		int datacenterId = data[0];
+
+		for (int i = 1; i + 1 < data.length; i += 2) {
+			processVmCreateResult(datacenterId, data[i], data[i + 1], VmList.getById(getVmList(), data[i]));
+			incrementVmsAcks();
+		}
+		processVmsCreated();
+	}
+
+	/**
+	 * Process the result of a re-planning: only the VMs that change host (or that are not created yet)
+	 * are migrated. The event data is {datacenterId, vmId0, hostId0, vmId1, hostId1, ...}.
+	 *
+	 * @param ev a SimEvent object
+	 * @see CloudSimTags#VM_REPLAN_RESULT
+	 */
+	protected void processVmReplan(SimEvent ev) {
+		int[] data = (int[]) ev.getData();
+		Map<Integer, Integer> moves = new LinkedHashMap<Integer, Integer>();
+		for (int i = 1; i + 1 < data.length; i += 2) moves.put(data[i], data[i + 1]);
+		rejectedMoves.clear();
+		replanDatacenterId = data[0];
+		sendReplanMoves(moves);
+		Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Re-planning sent ", pendingMigrations,
+				" migration/s to Datacenter #", data[0]);
+	}
+
+	//Envia una ronda de migracions. El pla no té en compte l'ordre: una VM pot anar a un host que
+	//encara ocupa una altra VM que també s'ha de moure, i aquesta migració es rebutja
+	private void sendReplanMoves(Map<Integer, Integer> moves) {
+		replanMoves = moves;
+		replanProgress = false;
+		pendingMigrations = 0;
+		for (Map.Entry<Integer, Integer> move : moves.entrySet()) {
+			if (migrateVM(move.getKey(), move.getValue())) ++pendingMigrations;
+		}
+		if (pendingMigrations == 0) finishReplanRound();
+	}
+
+	//Acabada una ronda, es reintenten les migracions rebutjades mentre alguna altra hagi alliberat espai
+	private void finishReplanRound() {
+		if (!rejectedMoves.isEmpty() && replanProgress) {
+			Map<Integer, Integer> retry = rejectedMoves;
+			rejectedMoves = new LinkedHashMap<Integer, Integer>();
+			Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Retrying ", retry.size(),
+					" rejected migration/s");
+			sendReplanMoves(retry);
+			return;
+		}
+		if (!rejectedMoves.isEmpty()) {
+			Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": ", rejectedMoves.size(),
+					" migration/s of the re-planning could not be done");
+		}
+		rejectedMoves.clear();
+		replanMoves.clear();
+		//El datacenter processa aquest esdeveniment abans que els cloudlets: l'historial reflecteix el nou pla
+		sendNow(replanDatacenterId, CloudSimTags.VM_REPLAN_DONE);
+		submitReplannedCloudlets();
+	}
+
+	//Els cloudlets que ja s'executen no s'aturen: només s'envien els que esperen
+	private void submitReplannedCloudlets() {
+		keepSubmittedCloudlets = true;
+		submitCloudlets();
+		keepSubmittedCloudlets = false;
+	}
+
+	//Resultat de la creació d'una VM
+	private void processVmCreateResult(int datacenterId, int vmId, int result, Vm vm) {
 		if (result == CloudSimTags.TRUE) {
 			getVmsToDatacentersMap().put(vmId, datacenterId);
-			getVmsCreatedList().add(VmList.getById(getVmList(), vmId));
+			getVmsCreatedList().add(vm);
 			Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": VM #", vmId,
-					" has been created in Datacenter #", datacenterId, ", Host #",
-					VmList.getById(getVmsCreatedList(), vmId).getHost().getId());
+					" has been created in Datacenter #", datacenterId, ", Host #", vm.getHost().getId());
 		} else {
 			Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Creation of VM #", vmId,
 					" failed in Datacenter #", datacenterId);
 		}
+	}
 
-		incrementVmsAcks();
-
+	//Un cop rebuts els resultats: enviar els cloudlets o provar el següent datacenter
+	private void processVmsCreated() {
 		// all the requested VMs have been created
 		if (getVmsCreatedList().size() == getVmList().size() - getVmsDestroyed()) {
 			submitCloudlets();
@@ -352,13 +474,12 @@ public class DatacenterBrokerDelay extends SimEntity {
 	protected void processCloudletReturn(SimEvent ev) {
 		Cloudlet cloudlet = (Cloudlet) ev.getData();
 		//Potser el cloudlet arriba dos cops (amb la mateixa info)
-		if (!getCloudletReceivedList().contains(cloudlet)) {
-			getCloudletReceivedList().add(cloudlet);
+		if (getCloudletTable().getState(cloudlet.getCloudletId()) != CloudletStateTable.State.RECEIVED) {
 			++finished_cloudlets;
 		}
 		//Si ja s'ha executat, quan vinguin nous cloudlets no tindra els finalitzats en compte,
-		// nomes els pendents (submittedList)
-		getCloudletSubmittedList().remove(cloudlet);
+		// nomes els pendents (submittedList): passar-lo a rebut el treu dels enviats
+		getCloudletTable().moveTo(cloudlet, CloudletStateTable.State.RECEIVED);
 		Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Cloudlet ", cloudlet.getCloudletId(),
 				" received");
 		cloudletsSubmitted--;
@@ -420,6 +541,17 @@ public class DatacenterBrokerDelay extends SimEntity {
 	protected void createVmsInDatacenter(int datacenterId) {
                 int requestedVms = 0;
                 if (CloudSim.getOpta()) {
+                	if (getRedistribute() && getRedistributeLevel() && isMigrationReplan()) {
+                		replanVmsInDatacenter(datacenterId);
+                		return;
+                	}
+
+                	//Només les VMs ja creades poden tenir cloudlets executant-se (abans d'esborrar els mapejos)
+                	List<Vm> pause = new ArrayList<Vm>();
+                	for (Vm vm : getVmList()) {
+                		if (getVmsToDatacentersMap().containsKey(vm.getId())) pause.add(vm);
+                	}
+
                 	//Si esta activat, s'esborren tots els mapejos
                 	if (getRedistribute()) {
                 		if (getRedistributeLevel()) {
@@ -430,12 +562,13 @@ public class DatacenterBrokerDelay extends SimEntity {
 						} else Log.printConcatLine("Redistributing VMs unallocated in Hosts and new VMs");
 					} else Log.printConcatLine("Allocating new VMs");
 
+                    //Aturar els cloudlets executant-se a les VMs, amb un sol esdeveniment
+                    if (!pause.isEmpty()) sendNow(datacenterId, CloudSimTags.PAUSE_VMCLOUDLETS_BATCH, pause);
+
                     //passar tota la llista de vms (vmList)
                     //vmsCreatedList s'omple amb les vms creades al datacenter
                     List<Vm> sendDC = new ArrayList<Vm>();
                     for (Vm vm : getVmList()) {
-                    	//Aturar els cloudlets executant-se a la VM
-						sendNow(datacenterId, CloudSimTags.PAUSE_VMCLOUDLETS, vm);
                         //si no esta ja afegit a un DC (allotjada a un host)
 						if (getRedistribute()) {
 							//Allotja totes les VM no allotjades
@@ -472,6 +605,16 @@ public class DatacenterBrokerDelay extends SimEntity {
                 setVmsAcks(0);
 	}
 
+	//Demana al datacenter una replanificació de totes les VMs sense destruir-les ni aturar els cloudlets
+	private void replanVmsInDatacenter(int datacenterId) {
+		Log.printConcatLine("Re-planning all VMs allocated in Hosts and new VMs with migrations");
+		for (Vm vm : getVmList()) vm.setNew(false);
+		sendNow(datacenterId, CloudSimTags.VM_REPLAN, new ArrayList<Vm>(getVmList()));
+		getDatacenterRequestedIdsList().add(datacenterId);
+		setVmsRequested(0);
+		setVmsAcks(0);
+	}
+
 	/**
 	 * Submit cloudlets to the created VMs.
 	 *
@@ -485,47 +628,59 @@ public class DatacenterBrokerDelay extends SimEntity {
 		if (CloudSim.getOpta()) {
 			//Submitted + cloudlet list com a segon parametre
 			//Si ja tenia vm assignat -> move, si no el normal
-			List<Cloudlet> cloudlets = new ArrayList<>();
+			List<Cloudlet> cloudlets = new IdIndexedList<>(Cloudlet::getCloudletId);
 			cloudlets.addAll(getCloudletList());
-			cloudlets.addAll(getCloudletSubmittedList());
+			if (!keepSubmittedCloudlets) cloudlets.addAll(getCloudletSubmittedList());
 			//Nomes executar si hi han nous cloudlets a afegir
 			if (cloudlets.size() > 0) {
-				String SOLVER_CONFIG = "com/optacloud/SolverConfiguration/SolverConfigVmCloudlet";
-				SolverFactory<VmCloudletBalance> solverFactory = SolverFactory.createFromXmlResource(SOLVER_CONFIG);
-
-				Solver<VmCloudletBalance> solver = solverFactory.buildSolver();
+				Solver<VmCloudletBalance> solver = SolverCache.getSolver(SolverCache.SOLVER_CONFIG_VMCLOUDLET);
 
 				VmCloudletBalance unsolvedVmCloudlet = new VmCloudletBalance(getVmsCreatedList(), cloudlets);
 
-				VmCloudletBalance solvedVmCloudet = solver.solve(unsolvedVmCloudlet);
-
-				for (Cloudlet cl : solvedVmCloudet.getCloudletlist()) {
-					if (cl.getVm() != null) {
-						Vm vm = VmList.getById(getVmsCreatedList(), cl.getVm().getId());
-
-						if (!Log.isDisabled()) {
-							Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Sending cloudlet ",
-									cl.getCloudletId(), " to VM #", vm.getId());
-						}
+				SolverTelemetry.Recorder<VmCloudletBalance> recorder =
+						SolverTelemetry.start(solver, SolverCache.SOLVER_CONFIG_VMCLOUDLET, cloudlets.size());
+				try {
+					VmCloudletBalance solvedVmCloudet;
+					if (getTermination() != null) {
+						//Parar quan el makespan arriba a la cota inferior (la puntuació trunca el temps a enter)
+						final int lowerBound = (int) unsolvedVmCloudlet.getMakespanLowerBound();
+						solvedVmCloudet = getTermination().solve(solver, unsolvedVmCloudlet, cloudlets.size(),
+								s -> -s.getScore().getHardScore() <= lowerBound);
+					} else solvedVmCloudet = solver.solve(unsolvedVmCloudlet);
+
+					for (Cloudlet cl : solvedVmCloudet.getCloudletlist()) {
+						if (cl.getVm() != null) {
+							Vm vm = VmList.getById(getVmsCreatedList(), cl.getVm().getId());
+
+							if (!Log.isDisabled()) {
+								Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Sending cloudlet ",
+										cl.getCloudletId(), " to VM #", vm.getId());
+							}
 
-						Cloudlet cloudlet = CloudletList.getById(cloudlets, cl.getCloudletId());
-						cloudlet.setVmId(vm.getId());
-						cloudlet.incAssignations();
-						sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
-						cloudletsSubmitted++;
-						getCloudletSubmittedList().add(cloudlet);
-						successfullySubmitted.add(cloudlet);
-					} else {
-						if (!Log.isDisabled()) {
-							Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Postponing execution of cloudlet ",
-									cl.getCloudletId(), ": bount VM not available");
+							Cloudlet cloudlet = CloudletList.getById(cloudlets, cl.getCloudletId());
+							cloudlet.setVmId(vm.getId());
+							cloudlet.incAssignations();
+							sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
+							cloudletsSubmitted++;
+							getCloudletSubmittedList().add(cloudlet);
+							successfullySubmitted.add(cloudlet);
+						} else {
+							if (!Log.isDisabled()) {
+								Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Postponing execution of cloudlet ",
+										cl.getCloudletId(), ": bount VM not available");
+							}
 						}
 					}
+					recorder.finish(successfullySubmitted.size());
+				} finally {
+					//Si el solve ha fallat, treure el listener del solver compartit
+					recorder.abort();
 				}
 			}
 		} else {
 			int vmIndex = 0;
-			for (Cloudlet cloudlet : getCloudletList()) {
+			//Còpia: enviar un cloudlet el treu de la llista d'espera
+			for (Cloudlet cloudlet : new ArrayList<Cloudlet>(getCloudletList())) {
 				Vm vm;
 				// if user didn't bind this cloudlet and it has not been executed yet
 				if (cloudlet.getVmId() == -1) {
@@ -555,8 +710,7 @@ public class DatacenterBrokerDelay extends SimEntity {
 			}
 		}
 
-		// remove submitted cloudlets from waiting list
-		getCloudletList().removeAll(successfullySubmitted);
+		//Els cloudlets enviats ja no són a la llista d'espera (CloudletStateTable)
 	}
 
 	/**
@@ -592,6 +746,10 @@ public class DatacenterBrokerDelay extends SimEntity {
 	public void startEntity() {
 		Log.printConcatLine(getName(), " is starting...");
 		schedule(getId(), 0, CloudSimTags.RESOURCE_CHARACTERISTICS_REQUEST);
+		//Evitar que el primer enviament de cloudlets pagui la càrrega de classes i el JIT del solver
+		if (CloudSim.getOpta()) {
+			SolverCache.warmUpVmCloudlet();
+		}
 		//Si l'usuari indica que vol exercutar recursos amb delay
 		if (getDelayedSubmit()) {
 			Log.printConcatLine(getName(), "Delayed resources activated");
@@ -641,7 +799,8 @@ public class DatacenterBrokerDelay extends SimEntity {
 	 * @param cloudletList the new cloudlet list
 	 */
 	protected <T extends Cloudlet> void setCloudletList(List<T> cloudletList) {
-		this.cloudletList = cloudletList;
+		getCloudletList().clear();
+		getCloudletList().addAll(cloudletList);
 	}
 
 	/**
@@ -662,7 +821,8 @@ public class DatacenterBrokerDelay extends SimEntity {
 	 * @param cloudletSubmittedList the new cloudlet submitted list
 	 */
 	protected <T extends Cloudlet> void setCloudletSubmittedList(List<T> cloudletSubmittedList) {
-		this.cloudletSubmittedList = cloudletSubmittedList;
+		getCloudletSubmittedList().clear();
+		getCloudletSubmittedList().addAll(cloudletSubmittedList);
 	}
 
 	/**
@@ -711,7 +871,17 @@ public class DatacenterBrokerDelay extends SimEntity {
 	 * @param cloudletReceivedList the new cloudlet received list
 	 */
 	protected <T extends Cloudlet> void setCloudletReceivedList(List<T> cloudletReceivedList) {
-		this.cloudletReceivedList = cloudletReceivedList;
+		getCloudletReceivedList().clear();
+		getCloudletReceivedList().addAll(cloudletReceivedList);
+	}
+
+	/**
+	 * Gets the state table of the cloudlets of the broker.
+	 *
+	 * @return the cloudlet state table
+	 */
+	protected CloudletStateTable getCloudletTable() {
+		return cloudletTable;
 	}
 
 	/**
@@ -884,17 +1054,26 @@ public class DatacenterBrokerDelay extends SimEntity {
 
 	public boolean getRedistributeLevel() { return redistribute_level; }
 
-	//Migrar la VM especificada al host demanat
-	public void migrateVM(int vmId, int hostId) {
+	//Amb redistribute i redistribute_level, replanificar amb migracions en lloc de destruir i crear les VMs
+	public void setMigrationReplan(boolean migrationReplan) {
+		this.migrationReplan = migrationReplan;
+	}
+
+	public boolean isMigrationReplan() { return migrationReplan; }
+
+	//Migrar la VM especificada al host demanat. Retorna false si ja hi era (no s'envia res)
+	public boolean migrateVM(int vmId, int hostId) {
 		Log.printConcatLine("Starting migration of VM#" + vmId + " to Host#" + hostId);
+		Vm vm = VmList.getById(getVmList(), vmId);
 		Map<Vm, Integer> data = new HashMap<Vm, Integer>();
-		data.put(getVmList().get(vmId), hostId);
+		data.put(vm, hostId);
 		//Comprovar si està allotjada
 		if (getVmsToDatacentersMap().containsKey(vmId)) {
 			//migrar si es pot
-			if (getVmList().get(vmId).getHost().getId() == hostId) {
+			if (vm.getHost().getId() == hostId) {
 				//ja està assignat al host especificat
 				Log.printConcatLine("VM#" + vmId + " is already allocated in Host#" + hostId);
+				return false;
 			} else {
 				sendNow(getDatacenterIdsList().get(0), CloudSimTags.MIGRATE_VM_ACK, data);
 			}
@@ -902,6 +1081,7 @@ public class DatacenterBrokerDelay extends SimEntity {
 			//crear al host si es pot
 			sendNow(getDatacenterIdsList().get(0), CloudSimTags.MIGRATE_VM_ACK, data);
 		}
+		return true;
 	}
 
 	//Resultat de migrar la VM per part de l'usuari
@@ -917,6 +1097,14 @@ public class DatacenterBrokerDelay extends SimEntity {
 			if (host_prev_assig == CloudSimTags.FALSE) getVmsCreatedList().add(VmList.getById(getVmList(), vmId));
 			Log.printLine("Migration completed");
 		}
+
+		//Quan han acabat totes les migracions d'una ronda de replanificació, reintentar les rebutjades
+		//o enviar els cloudlets en espera
+		if (pendingMigrations > 0 && replanMoves.containsKey(vmId)) {
+			if (result == CloudSimTags.TRUE) replanProgress = true;
+			else rejectedMoves.put(vmId, replanMoves.get(vmId));
+			if (--pendingMigrations == 0) finishReplanRound();
+		}
 	}
 
 	//Desallotjar VM
@@ -983,6 +1171,15 @@ public class DatacenterBrokerDelay extends SimEntity {
 		getScheduleEndCloudlets().addAll(list);
 	}
 
+	public AdaptiveTermination getTermination() {
+		return termination;
+	}
+
+	//Configura la terminació del solver VmCloudlet (null: temps fix del XML)
+	public void setTermination(AdaptiveTermination termination) {
+		this.termination = termination;
+	}
+
 	public int getDelayNumber() {
 		if (getDelay().size() > 0) return getDelay().size() + 1;
 		else if (getScheduleEndCloudlets().size() > 0) return getScheduleEndCloudlets().size() + 1;
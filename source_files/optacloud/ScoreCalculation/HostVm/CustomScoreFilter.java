@@ -0,0 +1,66 @@
+package com.optacloud.ScoreCalculation.HostVm;
+
+/**
+ * Filtres que es poden configurar a CustomScoreConfig.txt.
+ * Els filtres de host (max_cpu ... min_stor) s'avaluen per a cada host sobre un recurs:
+ * 0 -> CPU, 1 -> RAM, 2 -> BW, 3 -> Storage. La resta depenen de tot el datacenter (recurs -1).
+ */
+public enum CustomScoreFilter {
+    MAX_COST("max_cost", -1, true),
+    MIN_HOST("min_host", -1, false),
+    MAX_HOST("max_host", -1, true),
+    MAX_POW("max_pow", -1, true),
+    MAX_CPU("max_cpu", 0, true),
+    MAX_RAM("max_ram", 1, true),
+    MAX_BW("max_bw", 2, true),
+    MAX_STOR("max_stor", 3, true),
+    MIN_CPU("min_cpu", 0, false),
+    MIN_RAM("min_ram", 1, false),
+    MIN_BW("min_bw", 2, false),
+    MIN_STOR("min_stor", 3, false);
+
+    /** Nom del filtre al fitxer de configuració */
+    private final String key;
+
+    /** Recurs sobre el que s'aplica el filtre (-1 si es de datacenter) */
+    private final int resource;
+
+    /** true si el valor del filtre es un màxim, false si es un mínim */
+    private final boolean upperBound;
+
+    CustomScoreFilter(String key, int resource, boolean upperBound) {
+        this.key = key;
+        this.resource = resource;
+        this.upperBound = upperBound;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getResource() {
+        return resource;
+    }
+
+    public boolean isUpperBound() {
+        return upperBound;
+    }
+
+    public boolean isHostFilter() {
+        return resource >= 0;
+    }
+
+    //Comprova si el valor activa el filtre: percentatge entre 0 i 100 pels filtres de host, -1 desactivat
+    public boolean isEnabled(int value) {
+        if (isHostFilter()) return value >= 0 && value <= 100;
+        return value > -1;
+    }
+
+    //Retorna el filtre corresponent al nom del fitxer de configuració, null si no existeix
+    public static CustomScoreFilter fromKey(String key) {
+        for (CustomScoreFilter filter : values()) {
+            if (filter.key.equals(key)) return filter;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,271 @@
+package com.optacloud.ScoreCalculation.HostVm;
+
+import org.cloudbus.cloudsim.Log;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * Configuració de CustomScoreConfig.txt compilada en taules. Només es guarden els filtres actius,
+ * separats segons si son hard o soft, de manera que els filtres desactivats (-1) no s'avaluen.
+ * L'objecte es immutable: quan el fitxer canvia es crea un nou pla a {@link #refresh()}.
+ */
+public final class CustomScorePlan {
+
+    public static final String CONFIG_PATH = "./src/com/optacloud/SolverConfiguration/CustomScoreConfig.txt";
+
+    /** Pla actual */
+    private static volatile CustomScorePlan plan;
+
+    /** Vigila el directori del fitxer de configuració */
+    private static WatchService watcher;
+
+    /** Valor de cada filtre (índex: ordinal de CustomScoreFilter), -1 si desactivat */
+    private final int[] values;
+
+    /** Tipus de cada filtre: true -> hard */
+    private final boolean[] hard;
+
+    //Filtres de host actius, hard
+    private final int[] hardResource;
+    private final boolean[] hardUpper;
+    private final int[] hardLimit;
+
+    //Filtres de host actius, soft
+    private final int[] softResource;
+    private final boolean[] softUpper;
+    private final int[] softLimit;
+
+    private CustomScorePlan(int[] values, boolean[] hard) {
+        this.values = values;
+        this.hard = hard;
+
+        int hardCount = 0;
+        int softCount = 0;
+        for (CustomScoreFilter filter : CustomScoreFilter.values()) {
+            if (filter.isHostFilter() && isActive(filter)) {
+                if (hard[filter.ordinal()]) ++hardCount;
+                else ++softCount;
+            }
+        }
+
+        hardResource = new int[hardCount];
+        hardUpper = new boolean[hardCount];
+        hardLimit = new int[hardCount];
+        softResource = new int[softCount];
+        softUpper = new boolean[softCount];
+        softLimit = new int[softCount];
+
+        hardCount = 0;
+        softCount = 0;
+        for (CustomScoreFilter filter : CustomScoreFilter.values()) {
+            if (filter.isHostFilter() && isActive(filter)) {
+                if (hard[filter.ordinal()]) {
+                    hardResource[hardCount] = filter.getResource();
+                    hardUpper[hardCount] = filter.isUpperBound();
+                    hardLimit[hardCount] = values[filter.ordinal()];
+                    ++hardCount;
+                } else {
+                    softResource[softCount] = filter.getResource();
+                    softUpper[softCount] = filter.isUpperBound();
+                    softLimit[softCount] = values[filter.ordinal()];
+                    ++softCount;
+                }
+            }
+        }
+    }
+
+    /**
+     * Retorna el pla actual. Només llegeix el fitxer la primera vegada.
+     *
+     * @return el pla de filtres
+     */
+    public static CustomScorePlan getPlan() {
+        CustomScorePlan current = plan;
+        if (current == null) current = refresh();
+        return current;
+    }
+
+    /**
+     * Torna a compilar el fitxer de configuració si el WatchService ha detectat canvis.
+     * S'ha de cridar entre solves, mai durant el càlcul de la puntuació.
+     *
+     * @return el pla de filtres vigent
+     */
+    public static synchronized CustomScorePlan refresh() {
+        Path path = Paths.get(CONFIG_PATH);
+        if (plan == null) {
+            //Primer es vigila i després es llegeix, perquè no es perdi cap canvi fet entremig
+            try {
+                watcher = FileSystems.getDefault().newWatchService();
+                path.toAbsolutePath().getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException e) {
+                Log.printLine("CustomScoreConfig: changes will not be detected, " + e.getMessage());
+                watcher = null;
+            }
+            plan = load(path);
+            return plan;
+        }
+
+        if (watcher != null) {
+            boolean changed = false;
+            WatchKey key;
+            while ((key = watcher.poll()) != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || path.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+            }
+            if (changed) {
+                Log.printLine("CustomScoreConfig changed, reloading filters");
+                plan = load(path);
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Fa servir els filtres d'un altre fitxer, sense vigilar-lo (benchmarks i comprovacions).
+     *
+     * @param path the filter configuration file
+     * @return el pla de filtres vigent
+     */
+    public static synchronized CustomScorePlan use(Path path) {
+        plan = load(path);
+        return plan;
+    }
+
+    //Llegir el fitxer de configuració. Si no es pot llegir sencer, es manté el pla anterior (o cap filtre)
+    private static CustomScorePlan load(Path path) {
+        int[] values = new int[CustomScoreFilter.values().length];
+        boolean[] hard = new boolean[values.length];
+        for (int i = 0; i < values.length; ++i) values[i] = -1;
+
+        BufferedReader br = null;
+        try {
+            br = new BufferedReader(new FileReader(path.toFile()));
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.indexOf("[") < 0) continue;
+                //Tractar cada linea
+                String key = line.substring(line.indexOf("[") + 1, line.indexOf("]"));
+                int value = Integer.parseInt(line.substring(line.indexOf("(") + 1, line.indexOf(")")).trim());
+                String constraint_type = line.substring(line.indexOf("{") + 1, line.indexOf("}"));
+                CustomScoreFilter filter = CustomScoreFilter.fromKey(key);
+                if (filter == null) {
+                    Log.printLine("CustomScoreConfig: unknown filter " + key);
+                    continue;
+                }
+                values[filter.ordinal()] = filter.isEnabled(value) ? value : -1;
+                hard[filter.ordinal()] = constraint_type.equals("hard");
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.printLine("CustomScoreConfig: " + e + (plan != null ? ", keeping the previous filters" : ", no filter active"));
+            if (plan != null) return plan;
+            //Un fitxer mig llegit no es fa servir: cap filtre actiu
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = -1;
+                hard[i] = false;
+            }
+        } finally {
+            if (br != null) {
+                try {
+                    br.close();
+                } catch (IOException e) {
+                    Log.printLine("CustomScoreConfig: " + e.getMessage());
+                }
+            }
+        }
+        return new CustomScorePlan(values, hard);
+    }
+
+    public boolean isActive(CustomScoreFilter filter) {
+        return values[filter.ordinal()] > -1;
+    }
+
+    public int getValue(CustomScoreFilter filter) {
+        return values[filter.ordinal()];
+    }
+
+    public boolean isHard(CustomScoreFilter filter) {
+        return hard[filter.ordinal()];
+    }
+
+    //Indica si cal calcular la potència del datacenter
+    public boolean needsPower() {
+        return isActive(CustomScoreFilter.MAX_POW);
+    }
+
+    //Indica si hi ha algun filtre de host actiu
+    public boolean hasHostFilters() {
+        return hardResource.length > 0 || softResource.length > 0;
+    }
+
+    /**
+     * Puntuació hard dels filtres de host, a partir de les utilitzacions (entre 0 i 1) del host.
+     */
+    public int hostHardScore(double cpu, double ram, double bw, double stor) {
+        return hostScore(hardResource, hardUpper, hardLimit, cpu, ram, bw, stor);
+    }
+
+    /**
+     * Puntuació soft dels filtres de host, a partir de les utilitzacions (entre 0 i 1) del host.
+     */
+    public int hostSoftScore(double cpu, double ram, double bw, double stor) {
+        return hostScore(softResource, softUpper, softLimit, cpu, ram, bw, stor);
+    }
+
+    private static int hostScore(int[] resource, boolean[] upper, int[] limit,
+                                 double cpu, double ram, double bw, double stor) {
+        int score = 0;
+        for (int i = 0; i < resource.length; ++i) {
+            double utilization;
+            switch (resource[i]) {
+                case 0: utilization = cpu; break;
+                case 1: utilization = ram; break;
+                case 2: utilization = bw; break;
+                default: utilization = stor; break;
+            }
+            boolean broken = upper[i] ? utilization*100 > limit[i] : utilization*100 < limit[i];
+            if (broken) score -= 10;
+            else score += 10;
+        }
+        return score;
+    }
+
+    /**
+     * Puntuació hard dels filtres de datacenter (max_cost, min_host, max_host, max_pow).
+     */
+    public int globalHardScore(int cost, int usedHosts, double power) {
+        return globalScore(true, cost, usedHosts, power);
+    }
+
+    /**
+     * Puntuació soft dels filtres de datacenter (max_cost, min_host, max_host, max_pow).
+     */
+    public int globalSoftScore(int cost, int usedHosts, double power) {
+        return globalScore(false, cost, usedHosts, power);
+    }
+
+    private int globalScore(boolean type, int cost, int usedHosts, double power) {
+        int score = 0;
+        if (isActive(CustomScoreFilter.MAX_COST) && isHard(CustomScoreFilter.MAX_COST) == type) {
+            if (cost <= getValue(CustomScoreFilter.MAX_COST)) score += 10;
+        }
+        if (isActive(CustomScoreFilter.MIN_HOST) && isHard(CustomScoreFilter.MIN_HOST) == type) {
+            if (usedHosts >= getValue(CustomScoreFilter.MIN_HOST)) score += 10;
+        }
+        if (isActive(CustomScoreFilter.MAX_HOST) && isHard(CustomScoreFilter.MAX_HOST) == type) {
+            if (usedHosts <= getValue(CustomScoreFilter.MAX_HOST)) score += 10;
+        }
+        if (isActive(CustomScoreFilter.MAX_POW) && isHard(CustomScoreFilter.MAX_POW) == type) {
+            if (power <= getValue(CustomScoreFilter.MAX_POW)) score += 10;
+            else score -= 10;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,81 @@
+package com.optacloud.ScoreCalculation.HostVm;
+
+import com.optacloud.domain.HostCapacityTable;
+import com.optacloud.domain.HostSlot;
+import com.optacloud.domain.HostSlotBalance;
+import com.optacloud.domain.VmAssignment;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.impl.score.director.easy.EasyScoreCalculator;
+
+import java.util.List;
+
+/**
+ * Mateixa puntuació que HostVmSimpleScoreCalculator, sobre el model lleuger (HostSlotBalance).
+ */
+public class HostSlotScoreCalculator implements EasyScoreCalculator<HostSlotBalance> {
+
+    /** Ús de cada host, usage[recurs][host], un per fil */
+    private final ThreadLocal<int[][]> usages = new ThreadLocal<>();
+
+    /** Número de VMs assignades a cada host, un per fil */
+    private final ThreadLocal<int[]> vmCounts = new ThreadLocal<>();
+
+    public HardSoftScore calculateScore(HostSlotBalance dc) {
+        List<HostSlot> slots = dc.getHostSlotList();
+        int computerListSize = slots.size();
+
+        int[][] usage = usages.get();
+        int[] vmCount = vmCounts.get();
+        if (usage == null || vmCount.length != computerListSize) {
+            usage = new int[HostCapacityTable.RESOURCES][computerListSize];
+            vmCount = new int[computerListSize];
+            usages.set(usage);
+            vmCounts.set(vmCount);
+        }
+
+        //Tenir en compte l'estat actual del host + VMs assignades
+        for (int i = 0; i < computerListSize; ++i) {
+            HostSlot slot = slots.get(i);
+            for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) usage[r][i] = slot.getBaseUsage(r);
+            vmCount[i] = 0;
+        }
+        HostCapacityTable table = dc.getCapacityTable();
+        int hardScore = 0;
+        int softScore = 0;
+
+        for (VmAssignment assignment : dc.getVmAssignmentList()) {
+            HostSlot slot = assignment.getHostSlot();
+            if (slot == null) continue;
+            int i = slot.getIndex();
+            for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) usage[r][i] += assignment.getDemand(r);
+            ++vmCount[i];
+            softScore -= table.getMigrationCost(assignment.getIndex(), i);
+        }
+        for (int i = 0; i < computerListSize; ++i) {
+            HostSlot slot = slots.get(i);
+            double totalMips = slot.getCapacity(HostCapacityTable.MIPS);
+
+            //Recursos sobrepassats (la RAM es compara amb els MIPS, com a HostVmSimpleScoreCalculator)
+            if (usage[HostCapacityTable.MIPS][i] > totalMips) {
+                hardScore += (totalMips - usage[HostCapacityTable.MIPS][i]);
+            }
+            if (usage[HostCapacityTable.RAM][i] > slot.getCapacity(HostCapacityTable.RAM)) {
+                hardScore += (totalMips - usage[HostCapacityTable.RAM][i]);
+            }
+            for (int r = HostCapacityTable.BW; r <= HostCapacityTable.STORAGE; ++r) {
+                if (usage[r][i] > slot.getCapacity(r)) {
+                    hardScore += (slot.getCapacity(r) - usage[r][i]);
+                }
+            }
+
+            if (slot.isPreviouslyUsed() || vmCount[i] > 0) {
+                softScore -= usage[HostCapacityTable.MIPS][i]*table.getCostPerCPU();
+                softScore -= usage[HostCapacityTable.RAM][i]*table.getCostPerMem();
+                softScore -= usage[HostCapacityTable.BW][i]*table.getCostPerBw();
+                softScore -= usage[HostCapacityTable.STORAGE][i]*table.getCostPerStorage();
+            }
+        }
+
+        return HardSoftScore.valueOf(hardScore, softScore);
+    }
+}
@@ -0,0 +1,88 @@
+package com.optacloud.ScoreCalculation.HostVm;
+
+import com.optacloud.domain.HostCapacityTable;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Taules de treball amb l'ús de cada host (estat actual + VMs assignades) per als càlculs de
+ * puntuació. Es reutilitzen entre crides: només es tornen a crear quan canvia la
+ * {@link HostCapacityTable}, per tant un càlcul de puntuació no reserva memòria.
+ * Cada score calculator té la seva pròpia instància.
+ */
+public class HostUsage {
+
+    private HostCapacityTable table;
+
+    //Ús de cada host: usage[recurs][host]
+    private int[][] usage;
+
+    //Número de VMs del problema assignades a cada host
+    private int[] vmCount;
+
+    /**
+     * Calcula l'ús de cada host amb les VMs assignades a la solució.
+     *
+     * @param table the host capacity snapshot of the problem
+     * @param vmList the VM list of the solution, in the same order used to build the table
+     */
+    public void fill(HostCapacityTable table, List<Vm> vmList) {
+        int computerListSize = table.getHostCount();
+        if (this.table != table) {
+            this.table = table;
+            usage = new int[HostCapacityTable.RESOURCES][computerListSize];
+            vmCount = new int[computerListSize];
+        }
+
+        for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) {
+            int[] column = usage[r];
+            for (int i = 0; i < computerListSize; ++i) {
+                column[i] = table.getBaseUsage(i, r);
+            }
+        }
+        Arrays.fill(vmCount, 0);
+
+        for (int v = 0; v < vmList.size(); ++v) {
+            Host computer = vmList.get(v).getHost();
+            if (computer != null) {
+                int i = table.indexOf(computer);
+                for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) {
+                    usage[r][i] += table.getVmDemand(v, r);
+                }
+                ++vmCount[i];
+            }
+        }
+    }
+
+    public HostCapacityTable getTable() {
+        return table;
+    }
+
+    public int getUsage(int host, int resource) {
+        return usage[resource][host];
+    }
+
+    public int getVmCount(int host) {
+        return vmCount[host];
+    }
+
+    //Hosts que ja estaven utilitzats o que tenen alguna VM assignada
+    public boolean isUsed(int host) {
+        return table.isPreviouslyUsed(host) || vmCount[host] > 0;
+    }
+
+    //Algun dels recursos del host s'ha sobrepassat
+    public boolean isExceeded(int host) {
+        for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) {
+            if (usage[r][host] > table.getCapacity(host, r)) return true;
+        }
+        return false;
+    }
+
+    public double getUtilization(int host, int resource) {
+        return table.getUtilization(host, resource, usage[resource][host]);
+    }
+}
@@ -0,0 +1,305 @@
+package com.optacloud.ScoreCalculation.HostVm;
+
+import com.optacloud.domain.HostCapacityTable;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.score.stream.Constraint;
+import org.optaplanner.core.api.score.stream.ConstraintCollectors;
+import org.optaplanner.core.api.score.stream.ConstraintFactory;
+import org.optaplanner.core.api.score.stream.ConstraintProvider;
+import org.optaplanner.core.api.score.stream.Joiners;
+import org.optaplanner.core.api.score.stream.bi.BiConstraintStream;
+import org.optaplanner.core.api.score.stream.tri.TriConstraintStream;
+import org.optaplanner.core.api.score.stream.uni.UniConstraintStream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Versió Constraint Streams dels filtres de {@link HostVmCustomScoreCalculator}. Cada host es
+ * tracta per separat, de manera que el motor incremental només recalcula els hosts que toca un moviment.
+ * Les capacitats, l'ús base i els costos surten de la HostCapacityTable de la solució.
+ *
+ * Els filtres de datacenter (max_cost, min_host, max_host, max_pow) no són additius per host: es
+ * calculen com el valor de tots els hosts sense VMs del problema més la diferència que aporten els
+ * hosts amb VMs. Quan no hi ha cap VM assignada (p.ex. al principi de la construction heuristic)
+ * no hi ha cap diferència que sumar, i una restricció a part avalua el filtre només amb el valor base.
+ * La potència es suma en mil·liwatts.
+ */
+public class HostVmConstraintProvider implements ConstraintProvider {
+
+    public Constraint[] defineConstraints(ConstraintFactory constraintFactory) {
+        //Els filtres es llegeixen quan es construeix el solver
+        CustomScorePlan plan = CustomScorePlan.getPlan();
+
+        List<Constraint> constraints = new ArrayList<>();
+        constraints.add(overloadedHost(constraintFactory));
+        constraints.add(overloadedEmptyHost(constraintFactory));
+        constraints.add(previouslyUsedHost(constraintFactory));
+        constraints.add(newUsedHost(constraintFactory));
+
+        if (plan.hasHostFilters()) {
+            constraints.add(hostFilters(constraintFactory, plan, true));
+            constraints.add(emptyHostFilters(constraintFactory, plan, true));
+            constraints.add(hostFilters(constraintFactory, plan, false));
+            constraints.add(emptyHostFilters(constraintFactory, plan, false));
+        }
+
+        if (plan.isActive(CustomScoreFilter.MAX_COST)) {
+            constraints.add(maxCost(constraintFactory, plan));
+            constraints.add(maxCostWithoutVms(constraintFactory, plan));
+        }
+        if (plan.isActive(CustomScoreFilter.MIN_HOST)) {
+            constraints.add(minHost(constraintFactory, plan));
+            constraints.add(minHostWithoutVms(constraintFactory, plan));
+        }
+        if (plan.isActive(CustomScoreFilter.MAX_HOST)) {
+            constraints.add(maxHost(constraintFactory, plan));
+            constraints.add(maxHostWithoutVms(constraintFactory, plan));
+        }
+        if (plan.isActive(CustomScoreFilter.MAX_POW)) {
+            constraints.add(maxPowerReward(constraintFactory, plan));
+            constraints.add(maxPowerPenalty(constraintFactory, plan));
+            constraints.add(maxPowerWithoutVms(constraintFactory, plan));
+        }
+
+        return constraints.toArray(new Constraint[0]);
+    }
+
+    // ************************************************************************
+    // Streams
+    // ************************************************************************
+
+    //Hosts amb alguna VM del problema, amb la llista de VMs assignades i la taula de capacitats
+    private TriConstraintStream<Host, List<Vm>, HostCapacityTable> hostsWithVms(ConstraintFactory constraintFactory) {
+        return constraintFactory.from(Vm.class)
+                .filter(vm -> vm.getHost() != null)
+                .groupBy(Vm::getHost, ConstraintCollectors.toList())
+                .join(HostCapacityTable.class);
+    }
+
+    //Hosts sense cap VM del problema (només compta el seu estat actual)
+    private BiConstraintStream<Host, HostCapacityTable> hostsWithoutVms(ConstraintFactory constraintFactory) {
+        return constraintFactory.from(Host.class)
+                .ifNotExists(Vm.class, Joiners.equal(host -> host, Vm::getHost))
+                .join(HostCapacityTable.class);
+    }
+
+    // ************************************************************************
+    // Constraints
+    // ************************************************************************
+
+    //Si algun dels recursos del ordinador s'ha sobrepassat, es té menys puntuacio
+    private Constraint overloadedHost(ConstraintFactory constraintFactory) {
+        return hostsWithVms(constraintFactory)
+                .filter((host, vms, table) -> isExceeded(table, table.indexOf(host), vms))
+                .penalize("Overloaded host", HardSoftScore.ONE_SOFT);
+    }
+
+    private Constraint overloadedEmptyHost(ConstraintFactory constraintFactory) {
+        return hostsWithoutVms(constraintFactory)
+                .filter((host, table) -> isExceeded(table, table.indexOf(host), Collections.<Vm>emptyList()))
+                .penalize("Overloaded empty host", HardSoftScore.ONE_SOFT);
+    }
+
+    //Es recompensa cada host utilitzat, tant els que ja tenien VMs com els nous
+    private Constraint previouslyUsedHost(ConstraintFactory constraintFactory) {
+        return constraintFactory.from(Host.class)
+                .join(HostCapacityTable.class)
+                .filter((host, table) -> table.isPreviouslyUsed(table.indexOf(host)))
+                .reward("Previously used host", HardSoftScore.ONE_SOFT);
+    }
+
+    private Constraint newUsedHost(ConstraintFactory constraintFactory) {
+        return hostsWithVms(constraintFactory)
+                .filter((host, vms, table) -> !table.isPreviouslyUsed(table.indexOf(host)))
+                .reward("Newly used host", HardSoftScore.ONE_SOFT);
+    }
+
+    //Filtres per host (max_cpu, min_ram...)
+    private Constraint hostFilters(ConstraintFactory constraintFactory, CustomScorePlan plan, boolean hard) {
+        return hostsWithVms(constraintFactory)
+                .impact(hard ? "Host filters (hard)" : "Host filters (soft)",
+                        hard ? HardSoftScore.ONE_HARD : HardSoftScore.ONE_SOFT,
+                        (host, vms, table) -> hostFilterScore(plan, hard, table, table.indexOf(host), vms));
+    }
+
+    private Constraint emptyHostFilters(ConstraintFactory constraintFactory, CustomScorePlan plan, boolean hard) {
+        return hostsWithoutVms(constraintFactory)
+                .impact(hard ? "Empty host filters (hard)" : "Empty host filters (soft)",
+                        hard ? HardSoftScore.ONE_HARD : HardSoftScore.ONE_SOFT,
+                        (host, table) -> hostFilterScore(plan, hard, table, table.indexOf(host), Collections.<Vm>emptyList()));
+    }
+
+    private Constraint maxCost(ConstraintFactory constraintFactory, CustomScorePlan plan) {
+        int max_cost = plan.getValue(CustomScoreFilter.MAX_COST);
+        return baseCost(constraintFactory)
+                .join(hostsWithVms(constraintFactory)
+                        .groupBy(ConstraintCollectors.sum((host, vms, table) -> costDelta(table, table.indexOf(host), vms))))
+                .filter((base, delta) -> base + delta <= max_cost)
+                .reward("max_cost", filterWeight(plan, CustomScoreFilter.MAX_COST));
+    }
+
+    private Constraint maxCostWithoutVms(ConstraintFactory constraintFactory, CustomScorePlan plan) {
+        int max_cost = plan.getValue(CustomScoreFilter.MAX_COST);
+        return withoutAssignedVms(baseCost(constraintFactory))
+                .filter(base -> base <= max_cost)
+                .reward("max_cost (no VM assigned)", filterWeight(plan, CustomScoreFilter.MAX_COST));
+    }
+
+    private Constraint minHost(ConstraintFactory constraintFactory, CustomScorePlan plan) {
+        int min_host = plan.getValue(CustomScoreFilter.MIN_HOST);
+        return usedHosts(constraintFactory)
+                .filter((base, delta) -> base + delta >= min_host)
+                .reward("min_host", filterWeight(plan, CustomScoreFilter.MIN_HOST));
+    }
+
+    private Constraint minHostWithoutVms(ConstraintFactory constraintFactory, CustomScorePlan plan) {
+        int min_host = plan.getValue(CustomScoreFilter.MIN_HOST);
+        return withoutAssignedVms(baseHosts(constraintFactory))
+                .filter(base -> base >= min_host)
+                .reward("min_host (no VM assigned)", filterWeight(plan, CustomScoreFilter.MIN_HOST));
+    }
+
+    private Constraint maxHost(ConstraintFactory constraintFactory, CustomScorePlan plan) {
+        int max_host = plan.getValue(CustomScoreFilter.MAX_HOST);
+        return usedHosts(constraintFactory)
+                .filter((base, delta) -> base + delta <= max_host)
+                .reward("max_host", filterWeight(plan, CustomScoreFilter.MAX_HOST));
+    }
+
+    private Constraint maxHostWithoutVms(ConstraintFactory constraintFactory, CustomScorePlan plan) {
+        int max_host = plan.getValue(CustomScoreFilter.MAX_HOST);
+        return withoutAssignedVms(baseHosts(constraintFactory))
+                .filter(base -> base <= max_host)
+                .reward("max_host (no VM assigned)", filterWeight(plan, CustomScoreFilter.MAX_HOST));
+    }
+
+    //Número de hosts utilitzats: els que ja tenien VMs + els nous
+    private BiConstraintStream<Integer, Integer> usedHosts(ConstraintFactory constraintFactory) {
+        return baseHosts(constraintFactory)
+                .join(hostsWithVms(constraintFactory)
+                        .groupBy(ConstraintCollectors.sum((host, vms, table) -> table.isPreviouslyUsed(table.indexOf(host)) ? 0 : 1)));
+    }
+
+    //Tambe compta la potencia dels que no tenen cap vm assignada (en idle)
+    private Constraint maxPowerReward(ConstraintFactory constraintFactory, CustomScorePlan plan) {
+        long max_pow = plan.getValue(CustomScoreFilter.MAX_POW) * 1000L;
+        return power(constraintFactory)
+                .filter((base, delta) -> base + delta <= max_pow)
+                .reward("max_pow", filterWeight(plan, CustomScoreFilter.MAX_POW));
+    }
+
+    private Constraint maxPowerPenalty(ConstraintFactory constraintFactory, CustomScorePlan plan) {
+        long max_pow = plan.getValue(CustomScoreFilter.MAX_POW) * 1000L;
+        return power(constraintFactory)
+                .filter((base, delta) -> base + delta > max_pow)
+                .penalize("max_pow exceeded", filterWeight(plan, CustomScoreFilter.MAX_POW));
+    }
+
+    private Constraint maxPowerWithoutVms(ConstraintFactory constraintFactory, CustomScorePlan plan) {
+        long max_pow = plan.getValue(CustomScoreFilter.MAX_POW) * 1000L;
+        return withoutAssignedVms(basePower(constraintFactory))
+                .impact("max_pow (no VM assigned)", filterWeight(plan, CustomScoreFilter.MAX_POW),
+                        base -> base <= max_pow ? 1 : -1);
+    }
+
+    private BiConstraintStream<Long, Long> power(ConstraintFactory constraintFactory) {
+        return basePower(constraintFactory)
+                .join(hostsWithVms(constraintFactory)
+                        .groupBy(ConstraintCollectors.sumLong((host, vms, table) -> {
+                            int i = table.indexOf(host);
+                            return powerMilliwatts(table, i, vms) - powerMilliwatts(table, i, Collections.<Vm>emptyList());
+                        })));
+    }
+
+    //Valors base dels filtres de datacenter, sense les VMs del problema. Els hosts no canvien, per tant
+    //només es calculen un cop
+    private UniConstraintStream<Integer> baseCost(ConstraintFactory constraintFactory) {
+        return constraintFactory.from(Host.class)
+                .join(HostCapacityTable.class)
+                .groupBy(ConstraintCollectors.sum((host, table) -> {
+                    int i = table.indexOf(host);
+                    return table.isPreviouslyUsed(i) ? cost(table, i, Collections.<Vm>emptyList()) : 0;
+                }));
+    }
+
+    private UniConstraintStream<Integer> baseHosts(ConstraintFactory constraintFactory) {
+        return constraintFactory.from(Host.class)
+                .join(HostCapacityTable.class)
+                .groupBy(ConstraintCollectors.sum((host, table) -> table.isPreviouslyUsed(table.indexOf(host)) ? 1 : 0));
+    }
+
+    private UniConstraintStream<Long> basePower(ConstraintFactory constraintFactory) {
+        return constraintFactory.from(Host.class)
+                .join(HostCapacityTable.class)
+                .groupBy(ConstraintCollectors.sumLong((host, table) ->
+                        powerMilliwatts(table, table.indexOf(host), Collections.<Vm>emptyList())));
+    }
+
+    //El valor base només si cap VM del problema té host: llavors no hi ha cap diferència per sumar-hi
+    private <T> UniConstraintStream<T> withoutAssignedVms(UniConstraintStream<T> base) {
+        return base.ifNotExists(Vm.class, Joiners.equal(value -> true, vm -> vm.getHost() != null));
+    }
+
+    private HardSoftScore filterWeight(CustomScorePlan plan, CustomScoreFilter filter) {
+        if (plan.isHard(filter)) return HardSoftScore.valueOf(10, 0);
+        else return HardSoftScore.valueOf(0, 10);
+    }
+
+    // ************************************************************************
+    // Càlcul de l'ús de cada host
+    // ************************************************************************
+
+    //Ús d'un recurs del host: estat actual + VMs assignades
+    private static int usage(HostCapacityTable table, int i, List<Vm> vms, int resource) {
+        int usage = table.getBaseUsage(i, resource);
+        for (Vm vm : vms) usage += HostCapacityTable.getDemand(vm, resource);
+        return usage;
+    }
+
+    private static boolean isExceeded(HostCapacityTable table, int i, List<Vm> vms) {
+        for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) {
+            if (usage(table, i, vms, r) > table.getCapacity(i, r)) return true;
+        }
+        return false;
+    }
+
+    //% d'utilització del recurs, 1.0 si s'ha sobrepassat
+    private static double utilization(HostCapacityTable table, int i, List<Vm> vms, int resource) {
+        return table.getUtilization(i, resource, usage(table, i, vms, resource));
+    }
+
+    private static int hostFilterScore(CustomScorePlan plan, boolean hard, HostCapacityTable table, int i, List<Vm> vms) {
+        double cpu = utilization(table, i, vms, HostCapacityTable.MIPS);
+        double ram = utilization(table, i, vms, HostCapacityTable.RAM);
+        double bw = utilization(table, i, vms, HostCapacityTable.BW);
+        double stor = utilization(table, i, vms, HostCapacityTable.STORAGE);
+        if (hard) return plan.hostHardScore(cpu, ram, bw, stor);
+        else return plan.hostSoftScore(cpu, ram, bw, stor);
+    }
+
+    //Els costos de la taula són 0 si els hosts no tenen datacenter
+    private static int cost(HostCapacityTable table, int i, List<Vm> vms) {
+        int cost = 0;
+        cost += usage(table, i, vms, HostCapacityTable.MIPS)*table.getCostPerCPU();
+        cost += usage(table, i, vms, HostCapacityTable.RAM)*table.getCostPerMem();
+        cost += usage(table, i, vms, HostCapacityTable.BW)*table.getCostPerBw();
+        cost += usage(table, i, vms, HostCapacityTable.STORAGE)*table.getCostPerStorage();
+        return cost;
+    }
+
+    //Cost que afegeixen les VMs a un host (tot el cost del host si abans no estava utilitzat)
+    private static int costDelta(HostCapacityTable table, int i, List<Vm> vms) {
+        if (!table.isPreviouslyUsed(i)) return cost(table, i, vms);
+        return cost(table, i, vms) - cost(table, i, Collections.<Vm>emptyList());
+    }
+
+    private static long powerMilliwatts(HostCapacityTable table, int i, List<Vm> vms) {
+        double resUtilization = table.getResourceUtilization(i, utilization(table, i, vms, HostCapacityTable.MIPS),
+                utilization(table, i, vms, HostCapacityTable.RAM), utilization(table, i, vms, HostCapacityTable.BW));
+        return Math.round(table.getPower(i, resUtilization)*1000);
+    }
+}
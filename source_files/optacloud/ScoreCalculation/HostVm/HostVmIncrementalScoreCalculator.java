@@ -0,0 +1,243 @@
+package com.optacloud.ScoreCalculation.HostVm;
+
+import com.optacloud.domain.HostCapacityTable;
+import com.optacloud.domain.HostVmBalance;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.impl.score.director.incremental.IncrementalScoreCalculator;
+
+/**
+ * Versió incremental de {@link HostVmCustomScoreCalculator}: aplica els mateixos filtres de
+ * CustomScoreConfig.txt però només recalcula el host que canvia a cada moviment.
+ */
+public class HostVmIncrementalScoreCalculator implements IncrementalScoreCalculator<HostVmBalance> {
+
+    /** Fotografia dels hosts del problema */
+    private HostCapacityTable table;
+
+    /** Filtres actius de CustomScoreConfig.txt */
+    private CustomScorePlan plan;
+
+    //Ús de cada host (estat actual + VMs assignades pel solver)
+    private int[] cpuPowerUsage;
+    private int[] memoryUsage;
+    private int[] networkBandwidthUsage;
+    private int[] storageUsage;
+
+    //Número de VMs del problema assignades a cada host
+    private int[] vmCount;
+
+    //Puntuació parcial de cada host
+    private int[] hostHardScore;
+    private int[] hostSoftScore;
+    private int[] hostCost;
+    private double[] hostPower;
+
+    //Acumulats de tot el datacenter
+    private int hardScore;
+    private int softScore;
+    private int usedComputers;
+    private int cost;
+    private double power;
+
+    //Cost de les VMs migrades (només en una replanificació)
+    private int migration;
+
+    public void resetWorkingSolution(HostVmBalance dc) {
+        table = dc.getCapacityTable();
+
+        plan = CustomScorePlan.getPlan();
+
+        int computerListSize = table.getHostCount();
+        cpuPowerUsage = new int[computerListSize];
+        memoryUsage = new int[computerListSize];
+        networkBandwidthUsage = new int[computerListSize];
+        storageUsage = new int[computerListSize];
+        vmCount = new int[computerListSize];
+        hostHardScore = new int[computerListSize];
+        hostSoftScore = new int[computerListSize];
+        hostCost = new int[computerListSize];
+        hostPower = new double[computerListSize];
+
+        hardScore = 0;
+        softScore = 0;
+        usedComputers = 0;
+        cost = 0;
+        power = 0.0;
+        migration = 0;
+
+        for (int i = 0; i < computerListSize; ++i) {
+            //Tenir en compte l'estat actual del host
+            cpuPowerUsage[i] = table.getBaseUsage(i, HostCapacityTable.MIPS);
+            memoryUsage[i] = table.getBaseUsage(i, HostCapacityTable.RAM);
+            networkBandwidthUsage[i] = table.getBaseUsage(i, HostCapacityTable.BW);
+            storageUsage[i] = table.getBaseUsage(i, HostCapacityTable.STORAGE);
+        }
+
+        for (Vm vm : dc.getVmlist()) {
+            Host computer = vm.getHost();
+            if (computer != null) {
+                int i = table.indexOf(computer);
+                addVm(i, vm);
+                ++vmCount[i];
+                migration += table.getMigrationCost(vm);
+            }
+        }
+
+        for (int i = 0; i < computerListSize; ++i) {
+            insertHost(i);
+        }
+    }
+
+    public void beforeEntityAdded(Object entity) {
+        // Do nothing
+    }
+
+    public void afterEntityAdded(Object entity) {
+        insert((Vm) entity);
+    }
+
+    public void beforeVariableChanged(Object entity, String variableName) {
+        retract((Vm) entity);
+    }
+
+    public void afterVariableChanged(Object entity, String variableName) {
+        insert((Vm) entity);
+    }
+
+    public void beforeEntityRemoved(Object entity) {
+        retract((Vm) entity);
+    }
+
+    public void afterEntityRemoved(Object entity) {
+        // Do nothing
+    }
+
+    //Assigna la VM al seu host i actualitza la puntuació parcial del host
+    private void insert(Vm vm) {
+        Host computer = vm.getHost();
+        if (computer != null) {
+            int i = table.indexOf(computer);
+            retractHost(i);
+            addVm(i, vm);
+            ++vmCount[i];
+            insertHost(i);
+            migration += table.getMigrationCost(vm);
+        }
+    }
+
+    //Treu la VM del seu host i actualitza la puntuació parcial del host
+    private void retract(Vm vm) {
+        Host computer = vm.getHost();
+        if (computer != null) {
+            int i = table.indexOf(computer);
+            retractHost(i);
+            cpuPowerUsage[i] -= (int) vm.getMips()*vm.getNumberOfPes();
+            memoryUsage[i] -= (int) vm.getRam();
+            networkBandwidthUsage[i] -= (int) vm.getBw();
+            storageUsage[i] -= (int) vm.getSize();
+            --vmCount[i];
+            insertHost(i);
+            migration -= table.getMigrationCost(vm);
+        }
+    }
+
+    private void addVm(int i, Vm vm) {
+        cpuPowerUsage[i] += (int) vm.getMips()*vm.getNumberOfPes();
+        memoryUsage[i] += (int) vm.getRam();
+        networkBandwidthUsage[i] += (int) vm.getBw();
+        storageUsage[i] += (int) vm.getSize();
+    }
+
+    private void retractHost(int i) {
+        hardScore -= hostHardScore[i];
+        softScore -= hostSoftScore[i];
+        power -= hostPower[i];
+        if (table.isPreviouslyUsed(i) || vmCount[i] > 0) {
+            --usedComputers;
+            cost -= hostCost[i];
+        }
+    }
+
+    //Calcula la puntuació parcial del host a partir del seu ús actual
+    private void insertHost(int i) {
+        boolean exceeded = false;
+        int hard = 0;
+        int soft = 0;
+
+        //CPU
+        double CPUUtilization;
+        if (cpuPowerUsage[i] > table.getCapacity(i, HostCapacityTable.MIPS)) {
+            CPUUtilization = 1.0;
+            exceeded = true;
+        } else CPUUtilization = cpuPowerUsage[i]/table.getCapacity(i, HostCapacityTable.MIPS);
+
+        //RAM
+        double RAMUtilization;
+        if (memoryUsage[i] > table.getCapacity(i, HostCapacityTable.RAM)) {
+            RAMUtilization = 1.0;
+            exceeded = true;
+        } else RAMUtilization = memoryUsage[i]/table.getCapacity(i, HostCapacityTable.RAM);
+
+        //BW
+        double BWUtilization;
+        if (networkBandwidthUsage[i] > table.getCapacity(i, HostCapacityTable.BW)) {
+            BWUtilization = 1.0;
+            exceeded = true;
+        } else BWUtilization = networkBandwidthUsage[i]/table.getCapacity(i, HostCapacityTable.BW);
+
+        //Storage
+        double StorUtilization;
+        if (storageUsage[i] > table.getCapacity(i, HostCapacityTable.STORAGE)) {
+            StorUtilization = 1.0;
+            exceeded = true;
+        } else StorUtilization = storageUsage[i]/table.getCapacity(i, HostCapacityTable.STORAGE);
+
+        //Si algun dels recursos del ordinador s'ha sobrepassat, es té menys puntuacio
+        if (exceeded) soft -= 1;
+
+        //Filtres que s'avaluen per a cada host
+        hard += plan.hostHardScore(CPUUtilization, RAMUtilization, BWUtilization, StorUtilization);
+        soft += plan.hostSoftScore(CPUUtilization, RAMUtilization, BWUtilization, StorUtilization);
+
+        //Tambe compta la potencia dels que no tenen cap vm assignada (en idle)
+        if (plan.needsPower()) {
+            double resUtilization = table.getResourceUtilization(i, CPUUtilization, RAMUtilization, BWUtilization);
+            hostPower[i] = table.getPower(i, resUtilization);
+        } else hostPower[i] = 0.0;
+
+        if (table.isPreviouslyUsed(i) || vmCount[i] > 0) {
+            //Nullable = true, per tant, la CH pot fer que el host d'una vm sigui null -> recompensar assignació
+            soft += 1;
+            ++usedComputers;
+            int c = 0;
+            c += cpuPowerUsage[i]*table.getCostPerCPU();
+            c += memoryUsage[i]*table.getCostPerMem();
+            c += networkBandwidthUsage[i]*table.getCostPerBw();
+            c += storageUsage[i]*table.getCostPerStorage();
+            hostCost[i] = c;
+            cost += c;
+        }
+
+        hostHardScore[i] = hard;
+        hostSoftScore[i] = soft;
+        hardScore += hard;
+        softScore += soft;
+        power += hostPower[i];
+    }
+
+    public HardSoftScore calculateScore() {
+        int hard = hardScore;
+        int soft = softScore;
+
+        //Filtres que depenen de tot el datacenter (no dins d'una part d'un partitioned search)
+        if (table.hasGlobalFilters()) {
+            hard += plan.globalHardScore(cost, usedComputers, power);
+            soft += plan.globalSoftScore(cost, usedComputers, power);
+        }
+        soft -= migration;
+
+        return HardSoftScore.valueOf(hard, soft);
+    }
+}
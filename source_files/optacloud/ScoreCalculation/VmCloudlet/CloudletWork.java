@@ -0,0 +1,28 @@
+package com.optacloud.ScoreCalculation.VmCloudlet;
+
+import org.cloudbus.cloudsim.Cloudlet;
+
+/**
+ * Feina dels cloudlets en unitats enteres (mil·lèsimes d'instrucció, ja dividides per la utilització),
+ * compartida pels score calculators VmCloudlet. La feina de cada VM se suma en un long, que és exacte
+ * i no depèn de l'ordre de les sumes i restes, i només es divideix pels MIPS quan es llegeix el temps.
+ * Així la versió incremental i la simple donen exactament la mateixa puntuació.
+ */
+public final class CloudletWork {
+
+    //Unitats per instrucció
+    private static final double SCALE = 1000.0;
+
+    private CloudletWork() {
+    }
+
+    //Feina del cloudlet: longitud/utilització, en unitats
+    public static long units(Cloudlet cl) {
+        return Math.round(cl.getCloudletLength()/cl.getUtilizationModelCpu().getUtilization(0)*SCALE);
+    }
+
+    //Temps que triga una VM a fer una feina donada
+    public static double time(long units, double mips) {
+        return units/(mips*SCALE);
+    }
+}
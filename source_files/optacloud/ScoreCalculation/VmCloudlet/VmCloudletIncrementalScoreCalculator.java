@@ -0,0 +1,165 @@
+package com.optacloud.ScoreCalculation.VmCloudlet;
+
+import com.optacloud.domain.VmCloudletBalance;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Vm;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.impl.score.director.incremental.IncrementalScoreCalculator;
+
+import java.util.*;
+
+import static java.lang.Math.*;
+
+/**
+ * Versió incremental de {@link VmCloudletSimpleScoreCalculator}: la feina de cada VM es guarda en
+ * una taula i el makespan (VM que més triga) en un max-heap indexat, de manera que cada moviment
+ * només actualitza les VMs afectades en O(log V). La feina se suma en unitats enteres
+ * ({@link CloudletWork}), per tant no s'acumula error d'arrodoniment després de molts moviments.
+ */
+public class VmCloudletIncrementalScoreCalculator implements IncrementalScoreCalculator<VmCloudletBalance> {
+
+    /** Key: vm, value: posició de la VM a les taules */
+    private Map<Vm, Integer> vmIndex;
+
+    /** Key: cloudlet, value: posició del cloudlet a les taules */
+    private Map<Cloudlet, Integer> cloudletIndex;
+
+    //MIPS de cada VM
+    private double[] vmMips;
+
+    //Feina de cada cloudlet (CloudletWork.units), calculada un cop per solve
+    private long[] cloudletWork;
+
+    //Feina dels cloudlets de cada VM
+    private long[] work;
+
+    //Temps que triga cada VM a executar els seus cloudlets, sempre calculat a partir de work
+    private double[] time;
+
+    //Max-heap de VMs ordenat pel temps
+    private int[] heap;
+
+    //Posició de cada VM dins del heap
+    private int[] heapPosition;
+
+    public void resetWorkingSolution(VmCloudletBalance dc) {
+        List<Vm> vmList = dc.getVmlist();
+        List<Cloudlet> cloudletList = dc.getCloudletlist();
+
+        int vmListSize = vmList.size();
+        vmIndex = new HashMap<>(vmListSize);
+        vmMips = new double[vmListSize];
+        work = new long[vmListSize];
+        time = new double[vmListSize];
+        heap = new int[vmListSize];
+        heapPosition = new int[vmListSize];
+        for (int i = 0; i < vmListSize; ++i) {
+            Vm vm = vmList.get(i);
+            vmIndex.put(vm, i);
+            vmMips[i] = vm.getMips();
+            heap[i] = i;
+            heapPosition[i] = i;
+        }
+
+        int cloudletListSize = cloudletList.size();
+        cloudletIndex = new HashMap<>(cloudletListSize);
+        cloudletWork = new long[cloudletListSize];
+        for (int i = 0; i < cloudletListSize; ++i) {
+            Cloudlet cl = cloudletList.get(i);
+            cloudletIndex.put(cl, i);
+            cloudletWork[i] = CloudletWork.units(cl);
+        }
+
+        //Tots els temps son 0, el heap ja es vàlid
+        for (Cloudlet cl : cloudletList) {
+            insert(cl);
+        }
+    }
+
+    public void beforeEntityAdded(Object entity) {
+        // Do nothing
+    }
+
+    public void afterEntityAdded(Object entity) {
+        insert((Cloudlet) entity);
+    }
+
+    public void beforeVariableChanged(Object entity, String variableName) {
+        retract((Cloudlet) entity);
+    }
+
+    public void afterVariableChanged(Object entity, String variableName) {
+        insert((Cloudlet) entity);
+    }
+
+    public void beforeEntityRemoved(Object entity) {
+        retract((Cloudlet) entity);
+    }
+
+    public void afterEntityRemoved(Object entity) {
+        // Do nothing
+    }
+
+    private void insert(Cloudlet cl) {
+        Vm vm = cl.getVm();
+        if (vm != null) {
+            int v = vmIndex.get(vm);
+            work[v] += cloudletWork[cloudletIndex.get(cl)];
+            time[v] = CloudletWork.time(work[v], vmMips[v]);
+            siftUp(heapPosition[v]);
+        }
+    }
+
+    private void retract(Cloudlet cl) {
+        Vm vm = cl.getVm();
+        if (vm != null) {
+            int v = vmIndex.get(vm);
+            work[v] -= cloudletWork[cloudletIndex.get(cl)];
+            time[v] = CloudletWork.time(work[v], vmMips[v]);
+            siftDown(heapPosition[v]);
+        }
+    }
+
+    public HardSoftScore calculateScore() {
+        int hardScore = -1;
+        if (heap.length > 0) hardScore = max(hardScore, (int) time[heap[0]]);
+        int softScore = 0;
+
+        return HardSoftScore.valueOf(-hardScore, softScore);
+    }
+
+    // ************************************************************************
+    // Max-heap indexat
+    // ************************************************************************
+
+    private void siftUp(int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >> 1;
+            if (time[heap[pos]] <= time[heap[parent]]) break;
+            swap(pos, parent);
+            pos = parent;
+        }
+    }
+
+    private void siftDown(int pos) {
+        int size = heap.length;
+        while (true) {
+            int left = 2*pos + 1;
+            if (left >= size) break;
+            int largest = left;
+            int right = left + 1;
+            if (right < size && time[heap[right]] > time[heap[left]]) largest = right;
+            if (time[heap[pos]] >= time[heap[largest]]) break;
+            swap(pos, largest);
+            pos = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+        heapPosition[heap[a]] = a;
+        heapPosition[heap[b]] = b;
+    }
+}
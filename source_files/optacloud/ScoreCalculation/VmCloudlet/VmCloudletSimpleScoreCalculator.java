@@ -11,49 +11,44 @@ import java.util.*;
 import static java.lang.Math.*;
 
 
+//Sense camps d'instància: amb moveThreadCount la mateixa instància es crida des de diversos fils
 public class VmCloudletSimpleScoreCalculator implements EasyScoreCalculator<VmCloudletBalance> {
-    /** Vm List */
-    private List<Vm> vmList;
-
-    /** Cloudlet List */
-    private List<Cloudlet> cloudletList;
 
     public HardSoftScore calculateScore(VmCloudletBalance dc) {
-        vmList = dc.getVmlist();
-        cloudletList = dc.getCloudletlist();
+        List<Vm> vmList = dc.getVmlist();
+        List<Cloudlet> cloudletList = dc.getCloudletlist();
 
         int vmListSize = vmList.size();
-        Map<Vm, Double> timeMap = new HashMap<>(vmListSize); //quant triga a executar els seus cloudlets cada màquina
+        Map<Vm, Long> workMap = new HashMap<>(vmListSize); //feina dels cloudlets de cada màquina (vegeu CloudletWork)
 
         for (Vm vm : vmList) {
-            timeMap.put(vm, 0.0);
+            workMap.put(vm, 0L);
         }
 
         Set<Vm> usedVmSet = new HashSet<>(vmListSize);
 
-        visitProcessList(timeMap, usedVmSet);
+        visitProcessList(cloudletList, workMap, usedVmSet);
 
-        int hardScore = sumHardScore(timeMap);
+        int hardScore = sumHardScore(workMap);
         int softScore = 0;
 
         return HardSoftScore.valueOf(hardScore, softScore);
     }
 
-    private void visitProcessList(Map<Vm, Double> timeMap, Set<Vm> usedComputerSet) {
+    private void visitProcessList(List<Cloudlet> cloudletList, Map<Vm, Long> workMap, Set<Vm> usedComputerSet) {
         for (Cloudlet cl : cloudletList) {
             Vm vm = cl.getVm();
             if (vm != null) {
-                double timeUsage = timeMap.get(vm) + (double) cl.getCloudletLength()/(vm.getMips()*cl.getUtilizationModelCpu().getUtilization(0));
-                timeMap.put(vm, timeUsage);
+                workMap.put(vm, workMap.get(vm) + CloudletWork.units(cl));
                 usedComputerSet.add(vm);
             }
         }
     }
 
-    private int sumHardScore(Map<Vm, Double> timeMap) {
+    private int sumHardScore(Map<Vm, Long> workMap) {
         int hardScore = -1;
-        for (Map.Entry<Vm, Double> usageEntry : timeMap.entrySet()) {
-            double time = usageEntry.getValue();
+        for (Map.Entry<Vm, Long> usageEntry : workMap.entrySet()) {
+            double time = CloudletWork.time(usageEntry.getValue(), usageEntry.getKey().getMips());
             hardScore = max(hardScore, (int) time);
         }
         return -hardScore;
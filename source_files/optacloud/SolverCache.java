@@ -0,0 +1,177 @@
+package com.optacloud;
+
+import com.optacloud.ScoreCalculation.HostVm.CustomScorePlan;
+import com.optacloud.domain.VmCloudletBalance;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.Vm;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache de SolverFactory i Solver per recurs de configuració. Cada XML es llegeix un sol cop i el
+ * Solver es reutilitza entre rondes d'allotjament (un Solver es pot reutilitzar, però no
+ * concurrentment). Si el pla de CustomScoreConfig.txt canvia, el Solver es torna a construir,
+ * ja que els ConstraintProvider llegeixen el pla quan es construeix el Solver.
+ */
+public final class SolverCache {
+
+    public static final String SOLVER_CONFIG_VMCLOUDLET = "com/optacloud/SolverConfiguration/SolverConfigVmCloudlet";
+
+    //Temps màxim de la resolució d'escalfament
+    private static final long WARM_UP_MILLISECONDS = 500L;
+
+    //Mida del problema d'escalfament VmCloudlet
+    private static final int WARM_UP_VMS = 4;
+    private static final int WARM_UP_CLOUDLETS = 16;
+
+    /** Key: recurs de configuració, value: factory (XML ja llegit) */
+    private static final Map<String, SolverFactory<?>> factories = new HashMap<>();
+
+    /** Key: recurs de configuració (i moveThreadCount), value: solver construït */
+    private static final Map<String, Solver<?>> solvers = new HashMap<>();
+
+    /** Key: recurs de configuració, value: pla de filtres amb què s'ha construït el solver */
+    private static final Map<String, CustomScorePlan> solverPlans = new HashMap<>();
+
+    /** Recursos ja escalfats */
+    private static final Set<String> warmedUp = new HashSet<>();
+
+    /** Si és true, es fa una resolució d'escalfament al començar la simulació */
+    private static boolean warmUpEnabled = true;
+
+    private SolverCache() {
+    }
+
+    /**
+     * Gets the solver factory of a configuration resource, reading the XML only the first time.
+     *
+     * @param resource the solver configuration resource
+     * @return the shared solver factory
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized <S> SolverFactory<S> getFactory(String resource) {
+        SolverFactory<S> factory = (SolverFactory<S>) factories.get(resource);
+        if (factory == null) {
+            factory = SolverFactory.createFromXmlResource(resource);
+            factories.put(resource, factory);
+        }
+        return factory;
+    }
+
+    /**
+     * Gets the solver of a configuration resource. The solver is built from the shared factory and
+     * rebuilt only when the CustomScoreConfig plan has changed since it was built.
+     *
+     * @param resource the solver configuration resource
+     * @return the shared solver, which must not be used concurrently
+     */
+    public static <S> Solver<S> getSolver(String resource) {
+        return getSolver(resource, null);
+    }
+
+    /**
+     * Gets the solver of a configuration resource with a given number of move threads.
+     *
+     * @param resource the solver configuration resource
+     * @param moveThreadCount the moveThreadCount (e.g. "4" or "AUTO"), null to keep the XML value
+     * @return the shared solver, which must not be used concurrently
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized <S> Solver<S> getSolver(String resource, String moveThreadCount) {
+        String key = moveThreadCount == null ? resource : resource + "#" + moveThreadCount;
+        CustomScorePlan plan = CustomScorePlan.getPlan();
+        Solver<S> solver = (Solver<S>) solvers.get(key);
+        if (solver == null || solverPlans.get(key) != plan) {
+            solver = buildSolver(resource, moveThreadCount);
+            solvers.put(key, solver);
+            solverPlans.put(key, plan);
+        }
+        return solver;
+    }
+
+    /**
+     * Builds a new solver from the shared factory, for a caller that needs its own instance
+     * (e.g. a solve in another thread). It is not cached.
+     *
+     * @param resource the solver configuration resource
+     * @param moveThreadCount the moveThreadCount, null to keep the XML value
+     * @return a new solver
+     */
+    public static synchronized <S> Solver<S> buildSolver(String resource, String moveThreadCount) {
+        SolverFactory<S> factory = getFactory(resource);
+        if (moveThreadCount != null) {
+            factory = factory.cloneSolverFactory();
+            factory.getSolverConfig().setMoveThreadCount(moveThreadCount);
+        }
+        return factory.buildSolver();
+    }
+
+    /**
+     * Fa una resolució d'usar i llençar amb un temps límit curt, perquè la primera ronda real no
+     * pagui la càrrega de classes ni el JIT. Només es fa un cop per recurs.
+     *
+     * @param resource the solver configuration resource
+     * @param moveThreadCount the moveThreadCount the solver will be used with, null to keep the XML value
+     * @param problem a throwaway problem; it is not modified
+     */
+    public static synchronized <S> void warmUp(String resource, String moveThreadCount, S problem) {
+        if (!warmUpEnabled || !warmedUp.add(resource)) return;
+
+        long start = System.currentTimeMillis();
+
+        //Construir el solver compartit, i escalfar amb una còpia de la configuració amb temps límit curt
+        getSolver(resource, moveThreadCount);
+        SolverFactory<S> warmUpFactory = SolverCache.<S>getFactory(resource).cloneSolverFactory();
+        TerminationConfig terminationConfig = new TerminationConfig();
+        terminationConfig.setMillisecondsSpentLimit(WARM_UP_MILLISECONDS);
+        warmUpFactory.getSolverConfig().setTerminationConfig(terminationConfig);
+        if (moveThreadCount != null) warmUpFactory.getSolverConfig().setMoveThreadCount(moveThreadCount);
+        warmUpFactory.buildSolver().solve(problem);
+
+        Log.printConcatLine("Solver warm-up ", resource, ": ", System.currentTimeMillis() - start, " ms");
+    }
+
+    //Escalfament del solver VmCloudlet amb VMs i cloudlets que no formen part de la simulació
+    public static void warmUpVmCloudlet() {
+        if (!warmUpEnabled) return;
+
+        List<Vm> vms = new ArrayList<>();
+        for (int i = 0; i < WARM_UP_VMS; ++i) {
+            vms.add(new Vm(-1 - i, -1, 1000 * (i + 1), 1, 512, 1000, 10000, "Xen",
+                    new CloudletSchedulerTimeShared()));
+        }
+        List<Cloudlet> cloudlets = new ArrayList<>();
+        for (int i = 0; i < WARM_UP_CLOUDLETS; ++i) {
+            cloudlets.add(new Cloudlet(-1 - i, 1000 * (i + 1), 1, 300, 300, new UtilizationModelFull(),
+                    new UtilizationModelFull(), new UtilizationModelFull()));
+        }
+        warmUp(SOLVER_CONFIG_VMCLOUDLET, null, new VmCloudletBalance(vms, cloudlets));
+    }
+
+    public static synchronized boolean isWarmUpEnabled() {
+        return warmUpEnabled;
+    }
+
+    public static synchronized void setWarmUpEnabled(boolean warmUpEnabled) {
+        SolverCache.warmUpEnabled = warmUpEnabled;
+    }
+
+    //Descarta tots els factories i solvers (p.ex. entre simulacions amb configuracions diferents)
+    public static synchronized void clear() {
+        factories.clear();
+        solvers.clear();
+        solverPlans.clear();
+        warmedUp.clear();
+    }
+}
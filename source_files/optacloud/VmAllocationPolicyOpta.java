@@ -1,17 +1,35 @@
 package com.optacloud;
 
+import com.optacloud.ScoreCalculation.HostVm.CustomScorePlan;
+import com.optacloud.ScoreCalculation.HostVm.HostUsage;
+import com.optacloud.domain.HostCapacityTable;
+import com.optacloud.domain.HostSlot;
+import com.optacloud.domain.HostSlotBalance;
+import com.optacloud.domain.HostSlotMapper;
 import com.optacloud.domain.HostVmBalance;
+import com.optacloud.domain.HostVmBestFitPhaseCommand;
+import com.optacloud.domain.VmAssignment;
+import com.optacloud.telemetry.SolveRecord;
+import com.optacloud.telemetry.SolverTelemetry;
 import org.cloudbus.cloudsim.*;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import org.cloudbus.cloudsim.core.CloudSim;
-import org.optaplanner.core.api.score.Score;
 import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 import org.optaplanner.core.api.solver.Solver;
-import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.api.solver.event.SolverEventListener;
 
 /**
  * VmAllocationPolicySimple is an VmAllocationPolicy that chooses the host for a VM
@@ -28,7 +46,68 @@ public class VmAllocationPolicyOpta extends VmAllocationPolicy {
 	private Map<String, Integer> usedPes;
 
 	/** The number of free Pes for each host from {@link #getHostList() }. */
-	private List<Integer> freePes;
+	private FreePesIndex freePes;
+
+	//Configuracions del solver disponibles
+	public static final String SOLVER_CONFIG_HOSTVM = "com/optacloud/SolverConfiguration/SolverConfigHostVm";
+	public static final String SOLVER_CONFIG_HOSTVM_STREAMS = "com/optacloud/SolverConfiguration/SolverConfigHostVmStreams";
+	public static final String SOLVER_CONFIG_HOSTVM_PARTITIONED = "com/optacloud/SolverConfiguration/SolverConfigHostVmPartitioned";
+	public static final String SOLVER_CONFIG_HOSTSLOT = "com/optacloud/SolverConfiguration/SolverConfigHostSlot";
+
+	//Configuració del solver utilitzada per allotjar les VMs
+	private String solverConfig;
+
+	//Fils per avaluar moviments (moveThreadCount de OptaPlanner), null per mantenir el valor del XML
+	private String moveThreadCount;
+
+	//Terminació del solver segons la mida del lot; null per utilitzar el temps fix del XML
+	private AdaptiveTermination termination;
+
+	//Si és true, el solve s'atura quan el lot ocupa el mínim de hosts possible sense sobrepassar-ne cap
+	//(només té sentit amb puntuacions que minimitzen el número de hosts)
+	private boolean stopAtHostLowerBound;
+
+	//Mida del problema d'escalfament
+	private static final int WARM_UP_VMS = 4;
+
+	//Marge sobre el pressupost de temps abans de descartar una resolució en segon pla que no acaba
+	private static final long BACKGROUND_TIMEOUT_MARGIN_MILLIS = 1000;
+
+	/** The map between each VM and the last host it was allocated to, kept after deallocation.
+         * The map key is a VM UID and the value is the last host of that VM. */
+	private Map<String, Host> previousHostTable;
+
+	//Si és true, els lots on totes les VMs caben amb best fit (HostVmBestFitPhaseCommand) no passen pel solver
+	private boolean greedyShortcut;
+
+	//Punts soft per MB de RAM de cada VM que una replanificació (planHostsForVm) mou de host
+	private double migrationCostWeight;
+
+	//Si és true, les VMs que es tornen a planificar parteixen del seu últim host (solució inicial)
+	//i la construction heuristic només assigna les noves VMs i les que no tenen host vàlid
+	private boolean warmStart;
+
+	//Si és true, les VMs es creen amb best fit i el solver (HostSlot) continua en segon pla mentre avança la simulació
+	private boolean asyncSolving;
+
+	//Temps simulat entre la creació d'un lot i l'aplicació del pla millorat
+	private double asyncApplyDelay;
+
+	//Fil de les resolucions en segon pla, compartit per totes les polítiques
+	private static ExecutorService backgroundExecutor;
+
+	//Solver propi de les resolucions en segon pla (el de SolverCache el pot fer servir la simulació alhora)
+	private Solver<HostSlotBalance> asyncSolver;
+
+	//Resolució en segon pla en curs: lot que l'ha originat, VMs creades i el host on les va deixar la creació
+	private Future<Host[]> backgroundPlan;
+	private List<Vm> backgroundBatch;
+	private List<Vm> backgroundVms;
+	private Host[] backgroundFrom;
+	//Es posa a true quan es descarta la resolució
+	private AtomicBoolean backgroundCancelled;
+	//Pressupost de temps de la resolució, -1 si no té AdaptiveTermination
+	private long backgroundBudgetMillis = -1;
 
 	/**
 	 * Creates a new VmAllocationPolicySimple object.
@@ -40,14 +119,15 @@ public class VmAllocationPolicyOpta extends VmAllocationPolicy {
 	public VmAllocationPolicyOpta(List<? extends Host> list) {
 		super(list);
 
-		setFreePes(new ArrayList<Integer>());
-		for (Host host : getHostList()) {
-			getFreePes().add(host.getNumberOfPes());
-
-		}
+		setFreePes(new FreePesIndex(getHostList()));
 
 		setVmTable(new HashMap<String, Host>());
 		setUsedPes(new HashMap<String, Integer>());
+		setPreviousHostTable(new HashMap<String, Host>());
+		setSolverConfig(SOLVER_CONFIG_HOSTVM);
+		setTermination(new AdaptiveTermination(50, 20, 15000, 2000));
+		setMigrationCostWeight(0.01);
+		setAsyncApplyDelay(1.0);
 	}
 
 	/**
@@ -63,105 +143,45 @@ public class VmAllocationPolicyOpta extends VmAllocationPolicy {
 	public boolean allocateHostForVm(Vm vm) {
 		int requiredPes = vm.getNumberOfPes();
 		boolean result = false;
-		int tries = 0;
-		List<Integer> freePesTmp = new ArrayList<Integer>();
-		for (Integer freePes : getFreePes()) {
-			freePesTmp.add(freePes);
-		}
 
 		if (!getVmTable().containsKey(vm.getUid())) { // if this vm was not created
-			do {// we still trying until we find a host or until we try all of them
-				int moreFree = Integer.MIN_VALUE;
-				int idx = -1;
-
-				// we want the host with less pes in use
-				for (int i = 0; i < freePesTmp.size(); i++) {
-					if (freePesTmp.get(i) > moreFree) {
-						moreFree = freePesTmp.get(i);
-						idx = i;
-					}
-				}
-
-				Host host = getHostList().get(idx);
+			// we want the host with less pes in use; we still trying until we find a host or until we try all of them
+			for (int idx : getFreePes().byMostFree()) {
+				Host host = getFreePes().getHost(idx);
 				result = host.vmCreate(vm);
 
 				if (result) { // if vm were succesfully created in the host
 					getVmTable().put(vm.getUid(), host);
 					getUsedPes().put(vm.getUid(), requiredPes);
-					getFreePes().set(idx, getFreePes().get(idx) - requiredPes);
-					result = true;
+					getFreePes().addFreePes(idx, -requiredPes);
 					break;
-				} else {
-					freePesTmp.set(idx, Integer.MIN_VALUE);
 				}
-				tries++;
-			} while (!result && tries < getFreePes().size());
-
+			}
 		}
 
 		return result;
 	}
 
-	private void print_usage(List<Vm> vmlist, List<Host> hostlist, boolean[] allocatedVms) {
-		int i = 0;
-		for (Vm v : vmlist) {
-			if (allocatedVms[i]) {
-				System.out.println("VM: " + v.getId() + " Host: " + v.getHost().getId());
-				System.out.println("Allocation succeded");
-				//System.out.println("MIPS: " + v.getMips() * v.getNumberOfPes());
-			} else {
-				if (v.getHost() == null) {
-					System.out.println("VM: " + v.getId() + " Host: " + "not assigned");
-				} else System.out.println("VM: " + v.getId() + " Host: " + v.getHost().getId());
-				System.out.println("Allocation failed");
-			}
-			++i;
-			System.out.println("------------------");
-		}
-
+	private void addToHostHistory(List<Host> hostlist) {
 		for (Host h : hostlist) {
 			int mips_act = 0;
 			int ram_act = 0;
 			int bw_act = 0;
 			int storage_act = 0;
-			//i = 0;
 			for (Vm v : h.getVmList()) {
-				//if (allocatedVms[i] && v.getHost().getId() == h.getId()) {
 				mips_act += v.getMips()*v.getNumberOfPes();
 				ram_act += v.getRam();
 				bw_act += v.getBw();
 				storage_act += v.getSize();
-				//}
-				//++i;
 			}
-			System.out.println("HOST " + h.getId() + ":");
-			System.out.println("MIPS: " + mips_act + " / " + h.getPeList().get(0).getMips()*h.getNumberOfPes());
-			System.out.println("RAM: " + ram_act + " / " + h.getRam());
-			System.out.println("Storage: " + storage_act + " / " + h.getTotalStorage());
-			System.out.println("BW: " + bw_act + " / " + h.getBw());
-			System.out.println("Power: " + h.getGlobalPower()); //descomposar segons cpu/ram/bw?
-			System.out.println("------------------------");
+			h.getUsageHistory().add(CloudSim.clock(), mips_act, ram_act, bw_act, storage_act, h.getGlobalPower());
 		}
 	}
 
-	private void addToHostHistory(List<Host> hostlist) {
-		for (Host h : hostlist) {
-			int mips_act = 0;
-			int ram_act = 0;
-			int bw_act = 0;
-			int storage_act = 0;
-			for (Vm v : h.getVmList()) {
-				mips_act += v.getMips()*v.getNumberOfPes();
-				ram_act += v.getRam();
-				bw_act += v.getBw();
-				storage_act += v.getSize();
-			}
-			h.addMips_history(mips_act);
-			h.addRam_history(ram_act);
-			h.addBw_history(bw_act);
-			h.addStorage_history(storage_act);
-			h.addPower_history(h.getGlobalPower());
-		}
+	//Una replanificació és una ronda d'assignació: se'n guarda l'estat dels hosts un cop aplicada
+	@Override
+	public void replanApplied() {
+		addToHostHistory(getHostList());
 	}
 
         //OptaPlanner version
@@ -169,50 +189,380 @@ public class VmAllocationPolicyOpta extends VmAllocationPolicy {
         public boolean[] allocateHostForVm(List<Vm> vmList) {
             boolean[] res = new boolean[vmList.size()];
 
-            String SOLVER_CONFIG = "com/optacloud/SolverConfiguration/SolverConfigHostVm";
-            SolverFactory<HostVmBalance> solverFactory = SolverFactory.createFromXmlResource(SOLVER_CONFIG/*, getClass().getClassLoader()*/);
-            
-            Solver<HostVmBalance> solver = solverFactory.buildSolver();
+            //Recompilar els filtres de CustomScoreConfig.txt si el fitxer ha canviat des de l'últim solve
+            CustomScorePlan.refresh();
+
+            //Fotografia de l'estat dels hosts, compartida per tots els càlculs de puntuació
+            HostCapacityTable capacityTable = new HostCapacityTable(getHostList(), vmList);
+
+            //Partir de l'última assignació de les VMs que ja havien estat allotjades
+            if (isWarmStart()) seedPreviousHosts(vmList, capacityTable);
 
-            HostVmBalance unsolvedHostVm = new HostVmBalance(getHostList(), vmList);
+            //El pressupost només compta les VMs que s'han de construir (no les de warm start)
+            int pending = 0;
+            for (Vm vm : vmList) if (vm.getHost() == null) ++pending;
 
-            HostVmBalance solvedHostVm = solver.solve(unsolvedHostVm);
+            Host[] hosts = new Host[vmList.size()];
+            SolverTelemetry.Recorder<?> recorder = null;
+            if (isAsyncSolving()) {
+                //El pla del lot anterior ja no és vàlid; el d'aquest el millora el solver en segon pla
+                cancelBackgroundPlan();
+                System.arraycopy(HostVmBestFitPhaseCommand.assign(capacityTable, vmList), 0, hosts, 0, hosts.length);
+            } else recorder = planHosts(vmList, capacityTable, pending, getSolverConfig(), hosts);
 
             //Comprovar les màquines que s'han pogut allotjar i actualitzar variables
-			int i = 0;
-			for (Vm vm : solvedHostVm.getVmlist()) {
-				Host host = vm.getHost();
-				vmList.get(i).setBeingInstantiated(true);
+			int created = 0;
+			for (int i = 0; i < vmList.size(); ++i) {
+				Vm vm = vmList.get(i);
+				Host host = hosts[i];
+				vm.setBeingInstantiated(true);
 				if (host == null) res[i] = false;
-				else res[i] = host.vmCreate(vmList.get(i));
+				else res[i] = host.vmCreate(vm);
 				int requiredPes = vm.getNumberOfPes();
 
+				//Treure la llavor de les VMs que no s'han pogut crear
+				if (!res[i]) vm.setHost(null);
+
 				if (res[i]) { //s'ha creat satisfactòriament la VM al Host designat
+					++created;
 					getVmTable().put(vm.getUid(), host);
+					getPreviousHostTable().put(vm.getUid(), host);
 					getUsedPes().put(vm.getUid(), requiredPes);
-					getFreePes().set(host.getId(), getFreePes().get(host.getId()) - requiredPes);
+					getFreePes().addFreePes(getFreePes().indexOf(host), -requiredPes);
 				}
-				++i;
 			}
 
-			print_usage(solvedHostVm.getVmlist(), solvedHostVm.getHostlist(), res);
-			addToHostHistory(getHostList()/*solvedHostVm.getHostlist()*/);
+			addToHostHistory(getHostList());
+
+			if (isAsyncSolving()) startBackgroundPlan(vmList, res);
 
-			Score score = solver.getBestScore();
-			System.out.println(score.toString());
+			//Les dades de la resolució s'escriuen en segon pla (vegeu SolverTelemetry)
+			if (recorder == null) return res;
+			SolveRecord record = recorder.finish(created);
+			if (!Log.isDisabled()) {
+				Log.printConcatLine(CloudSim.clock(), ": Solved ", vmList.size(), " VM/s in ", record.getWallMillis(),
+						" ms, ", created, " created, score ", record.getBestScore());
+			}
 
             return res;
         }
 
+	/**
+	 * Re-plans allocated and new VMs together without touching them. The VMs that are already
+	 * allocated start from their current host, and moving one of them costs
+	 * {@link #getMigrationCostWeight()} soft points per MB of RAM.
+	 *
+	 * @param vmList the allocated and new VMs
+	 * @return the planned host of each VM by its position, null if it has no host
+	 */
+	@Override
+	public Host[] planHostsForVm(List<Vm> vmList) {
+		CustomScorePlan.refresh();
+		HostCapacityTable capacityTable = new HostCapacityTable(getHostList(), vmList, getMigrationCostWeight());
+
+		int pending = 0;
+		for (Vm vm : vmList) if (vm.getHost() == null) ++pending;
+
+		//Els Constraint Streams calculen l'ús a partir dels hosts reals, on les VMs encara hi són
+		String config = getSolverConfig();
+		if (SOLVER_CONFIG_HOSTVM_STREAMS.equals(config)) config = SOLVER_CONFIG_HOSTVM;
+
+		Host[] hosts = new Host[vmList.size()];
+		SolverTelemetry.Recorder<?> recorder = planHosts(vmList, capacityTable, pending, config, hosts);
+
+		int planned = 0;
+		int moved = 0;
+		for (int i = 0; i < hosts.length; ++i) {
+			if (hosts[i] == null) continue;
+			++planned;
+			if (hosts[i] != vmList.get(i).getHost()) ++moved;
+		}
+		if (recorder != null) recorder.finish(planned);
+		Log.printConcatLine(CloudSim.clock(), ": Re-planned ", vmList.size(), " VM/s, ", moved,
+				" to migrate or create, ", vmList.size() - planned, " without host");
+		return hosts;
+	}
+
+	//Tria el host de cada VM (best fit o solver) i el deixa a hosts; retorna null si no s'ha fet servir el solver
+	private SolverTelemetry.Recorder<?> planHosts(List<Vm> vmList, HostCapacityTable capacityTable, int pending,
+												   String config, Host[] hosts) {
+		if (isGreedyShortcut()) {
+			//Si totes les VMs hi caben amb best fit, no cal el solver
+			Host[] greedy = HostVmBestFitPhaseCommand.assign(capacityTable, vmList);
+			boolean all = true;
+			for (Host host : greedy) all &= host != null;
+			if (all) {
+				System.arraycopy(greedy, 0, hosts, 0, hosts.length);
+				Log.printConcatLine(CloudSim.clock(), ": Best fit allocated all ", vmList.size(), " VM/s, solver skipped");
+				return null;
+			}
+		}
+		if (SOLVER_CONFIG_HOSTSLOT.equals(config)) return solveHostSlot(vmList, capacityTable, pending, hosts);
+		return solveHostVm(vmList, capacityTable, pending, config, hosts);
+	}
+
+	//Resol amb el model de CloudSim (HostVmBalance) i deixa el host de cada VM a hosts
+	private SolverTelemetry.Recorder<HostVmBalance> solveHostVm(List<Vm> vmList, HostCapacityTable capacityTable,
+																 int pending, String config, Host[] hosts) {
+		//El XML es llegeix un cop i el solver es reutilitza entre rondes
+		Solver<HostVmBalance> solver = SolverCache.getSolver(config, getMoveThreadCount());
+		HostVmBalance unsolvedHostVm = new HostVmBalance(getHostList(), vmList, capacityTable);
+
+		SolverTelemetry.Recorder<HostVmBalance> recorder = SolverTelemetry.start(solver, config, vmList.size());
+		HostVmBalance solvedHostVm;
+		try {
+			if (getTermination() != null) {
+				solvedHostVm = getTermination().solve(solver, unsolvedHostVm, pending,
+						isStopAtHostLowerBound() ? hostLowerBound(capacityTable) : null);
+			} else solvedHostVm = solver.solve(unsolvedHostVm);
+		} catch (RuntimeException | Error e) {
+			//El solver es reutilitza: no pot quedar amb el listener del registre
+			recorder.abort();
+			throw e;
+		}
+
+		for (int i = 0; i < hosts.length; ++i) hosts[i] = solvedHostVm.getVmlist().get(i).getHost();
+		return recorder;
+	}
+
+	//Resol amb el model lleuger (HostSlotBalance): els moviments del solver no toquen les Vm de la simulació
+	private SolverTelemetry.Recorder<HostSlotBalance> solveHostSlot(List<Vm> vmList, HostCapacityTable capacityTable,
+																	 int pending, Host[] hosts) {
+		Solver<HostSlotBalance> solver = SolverCache.getSolver(getSolverConfig(), getMoveThreadCount());
+		HostSlotBalance unsolved = HostSlotMapper.toSolution(capacityTable, vmList);
+
+		SolverTelemetry.Recorder<HostSlotBalance> recorder = SolverTelemetry.start(solver, getSolverConfig(), vmList.size());
+		HostSlotBalance solved;
+		try {
+			if (getTermination() != null) {
+				solved = getTermination().solve(solver, unsolved, pending,
+						isStopAtHostLowerBound() ? hostSlotLowerBound(capacityTable) : null);
+			} else solved = solver.solve(unsolved);
+		} catch (RuntimeException | Error e) {
+			recorder.abort();
+			throw e;
+		}
+
+		System.arraycopy(HostSlotMapper.toHosts(solved), 0, hosts, 0, hosts.length);
+		return recorder;
+	}
+
+	//Llança el solver en segon pla sobre les VMs creades del lot, partint del host on són.
+	//El datacenter n'aplica el resultat a getBackgroundPlanDelay() amb takeBackgroundPlan
+	private void startBackgroundPlan(List<Vm> vmList, boolean[] res) {
+		final List<Vm> created = new ArrayList<Vm>();
+		for (int i = 0; i < res.length; ++i) if (res[i]) created.add(vmList.get(i));
+		if (created.isEmpty()) return;
+
+		//Les VMs ja són als hosts: moure'n una costa getMigrationCostWeight() punts per MB de RAM
+		HostCapacityTable capacityTable = new HostCapacityTable(getHostList(), created, getMigrationCostWeight());
+		final HostSlotBalance unsolved = HostSlotMapper.toSolution(capacityTable, created);
+		final Solver<HostSlotBalance> solver = getAsyncSolver();
+		final AdaptiveTermination termination = getTermination();
+
+		Host[] from = new Host[created.size()];
+		for (int i = 0; i < from.length; ++i) from[i] = created.get(i).getHost();
+
+		//solve() esborra un terminateEarly previ: si la tasca es descarta just abans de resoldre, el
+		//listener atura el solver a la primera millor solució
+		final AtomicBoolean cancelled = new AtomicBoolean();
+		final SolverEventListener<HostSlotBalance> cancelListener = event -> {
+			if (cancelled.get()) solver.terminateEarly();
+		};
+
+		backgroundBatch = vmList;
+		backgroundVms = created;
+		backgroundFrom = from;
+		backgroundCancelled = cancelled;
+		backgroundBudgetMillis = termination != null ? termination.getBudgetMillis(created.size()) : -1;
+		backgroundPlan = getBackgroundExecutor().submit(() -> {
+			if (cancelled.get()) return null;
+			SolverTelemetry.Recorder<HostSlotBalance> recorder = SolverTelemetry.start(solver, SOLVER_CONFIG_HOSTSLOT, created.size());
+			solver.addEventListener(cancelListener);
+			try {
+				HostSlotBalance solved;
+				if (termination != null) solved = termination.solve(solver, unsolved, created.size(), null);
+				else solved = solver.solve(unsolved);
+				recorder.finish(created.size());
+				return HostSlotMapper.toHosts(solved);
+			} finally {
+				solver.removeEventListener(cancelListener);
+				recorder.abort();
+			}
+		});
+	}
+
+	//Atura la resolució en segon pla en curs i en descarta el resultat
+	private void cancelBackgroundPlan() {
+		if (backgroundPlan == null) return;
+		backgroundCancelled.set(true);
+		backgroundPlan.cancel(false);
+		asyncSolver.terminateEarly();
+		clearBackgroundPlan();
+	}
+
+	private void clearBackgroundPlan() {
+		backgroundPlan = null;
+		backgroundBatch = null;
+		backgroundVms = null;
+		backgroundFrom = null;
+		backgroundCancelled = null;
+		backgroundBudgetMillis = -1;
+	}
+
+	@Override
+	public double getBackgroundPlanDelay() {
+		return backgroundPlan == null ? -1 : getAsyncApplyDelay();
+	}
+
+	/**
+	 * Waits for the background solve of a batch and gets the VMs that have to change host.
+	 * The VMs that have been destroyed or moved since the batch was created are left out.
+	 *
+	 * @param vmList the batch passed to {@link #allocateHostForVm(List)}
+	 * @return the new host of each VM to migrate, in plan order; null if the plan of the batch was discarded
+	 */
+	@Override
+	public Map<Vm, Host> takeBackgroundPlan(List<Vm> vmList) {
+		if (backgroundPlan == null || vmList != backgroundBatch) return null;
+		Future<Host[]> plan = backgroundPlan;
+		List<Vm> vms = backgroundVms;
+		Host[] from = backgroundFrom;
+		AtomicBoolean cancelled = backgroundCancelled;
+		long budget = backgroundBudgetMillis;
+		clearBackgroundPlan();
+
+		//Només bloqueja si el solver encara no ha acabat, i com a molt el pressupost de temps
+		long start = System.currentTimeMillis();
+		Host[] hosts;
+		try {
+			if (budget < 0) hosts = plan.get();
+			else hosts = plan.get(budget + BACKGROUND_TIMEOUT_MARGIN_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			Log.printLine("Background solve failed: " + e.getCause());
+			return null;
+		} catch (TimeoutException e) {
+			cancelled.set(true);
+			asyncSolver.terminateEarly();
+			Log.printConcatLine(CloudSim.clock(), ": Background solve of ", vms.size(), " VM/s discarded after ",
+					System.currentTimeMillis() - start, " ms");
+			return null;
+		}
+		if (hosts == null) return null;
+
+		Map<Vm, Host> moves = new LinkedHashMap<Vm, Host>();
+		for (int i = 0; i < hosts.length; ++i) {
+			Vm vm = vms.get(i);
+			if (hosts[i] == null || hosts[i] == from[i]) continue;
+			if (vm.getHost() != from[i] || getHost(vm) != from[i]) continue;
+			moves.put(vm, hosts[i]);
+		}
+		Log.printConcatLine(CloudSim.clock(), ": Background solve of ", vms.size(), " VM/s waited ",
+				System.currentTimeMillis() - start, " ms, ", moves.size(), " VM/s to migrate");
+		return moves;
+	}
+
+	private Solver<HostSlotBalance> getAsyncSolver() {
+		if (asyncSolver == null) asyncSolver = SolverCache.buildSolver(SOLVER_CONFIG_HOSTSLOT, getMoveThreadCount());
+		return asyncSolver;
+	}
+
+	private static synchronized ExecutorService getBackgroundExecutor() {
+		if (backgroundExecutor == null) {
+			backgroundExecutor = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "VmAllocationPolicyOpta-solver");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return backgroundExecutor;
+	}
+
+	//Cota inferior: totes les VMs allotjades, cap host sobrepassat i el mínim de hosts ocupats pel lot
+	private Predicate<HostVmBalance> hostLowerBound(final HostCapacityTable capacityTable) {
+		final int minHosts = capacityTable.getMinHostCount();
+		return solution -> {
+			if (solution.getScore().getHardScore() < 0) return false;
+			HostUsage usage = new HostUsage();
+			usage.fill(capacityTable, solution.getVmlist());
+			int usedHosts = 0;
+			for (int i = 0; i < capacityTable.getHostCount(); ++i) {
+				if (usage.isExceeded(i)) return false;
+				if (usage.getVmCount(i) > 0) ++usedHosts;
+			}
+			for (Vm vm : solution.getVmlist()) if (vm.getHost() == null) return false;
+			return usedHosts <= minHosts;
+		};
+	}
+
+	//La mateixa cota inferior per al model lleuger
+	private Predicate<HostSlotBalance> hostSlotLowerBound(final HostCapacityTable capacityTable) {
+		final int minHosts = capacityTable.getMinHostCount();
+		return solution -> {
+			if (solution.getScore().getHardScore() < 0) return false;
+			int[][] usage = new int[HostCapacityTable.RESOURCES][capacityTable.getHostCount()];
+			boolean[] used = new boolean[capacityTable.getHostCount()];
+			for (VmAssignment assignment : solution.getVmAssignmentList()) {
+				HostSlot slot = assignment.getHostSlot();
+				if (slot == null) return false;
+				used[slot.getIndex()] = true;
+				for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) usage[r][slot.getIndex()] += assignment.getDemand(r);
+			}
+			int usedHosts = 0;
+			for (HostSlot slot : solution.getHostSlotList()) {
+				for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) {
+					if (usage[r][slot.getIndex()] > slot.getFreeCapacity(r)) return false;
+				}
+				if (used[slot.getIndex()]) ++usedHosts;
+			}
+			return usedHosts <= minHosts;
+		};
+	}
+
+	//Assigna a cada VM sense host l'últim host on va estar allotjada, si encara és a la llista de hosts.
+	//Les VMs noves (o desplaçades) queden sense inicialitzar i són les úniques que passen per la construction heuristic
+	private void seedPreviousHosts(List<Vm> vmList, HostCapacityTable capacityTable) {
+		int seeded = 0;
+		for (Vm vm : vmList) {
+			if (vm.getHost() != null) continue;
+			Host host = getPreviousHostTable().get(vm.getUid());
+			if (host != null && capacityTable.indexOf(host) >= 0) {
+				vm.setHost(host);
+				++seeded;
+			}
+		}
+		Log.printConcatLine("Warm start: ", seeded, " VM/s seeded with their previous host, ",
+				vmList.size() - seeded, " VM/s to construct");
+	}
+
+	//Escalfament amb VMs que no formen part de la simulació sobre els hosts reals (el solver no els modifica)
+	@Override
+	public void warmUp() {
+		if (getHostList().isEmpty()) return;
+		List<Vm> vms = new ArrayList<Vm>();
+		for (int i = 0; i < WARM_UP_VMS; ++i) {
+			vms.add(new Vm(-1 - i, -1, 1, 1, 1, 1, 1, "Xen", new CloudletSchedulerTimeShared()));
+		}
+		if (isAsyncSolving() || SOLVER_CONFIG_HOSTSLOT.equals(getSolverConfig())) {
+			SolverCache.warmUp(SOLVER_CONFIG_HOSTSLOT, getMoveThreadCount(),
+					HostSlotMapper.toSolution(new HostCapacityTable(getHostList(), vms), vms));
+		}
+		if (!SOLVER_CONFIG_HOSTSLOT.equals(getSolverConfig())) {
+			SolverCache.warmUp(getSolverConfig(), getMoveThreadCount(), new HostVmBalance(getHostList(), vms));
+		}
+	}
+
     //Comentar en mainDelayPower
 	@Override
 	public void deallocateHostForVm(Vm vm) {
 		Host host = getVmTable().remove(vm.getUid());
-		int idx = getHostList().indexOf(host);
 		int pes = getUsedPes().remove(vm.getUid());
 		if (host != null) {
 			host.vmDestroy(vm);
-			getFreePes().set(idx, getFreePes().get(idx) + pes);
+			getFreePes().addFreePes(getFreePes().indexOf(host), pes);
 		}
 	}
 
@@ -267,7 +617,7 @@ public class VmAllocationPolicyOpta extends VmAllocationPolicy {
 	 * 
 	 * @return the free pes
 	 */
-	protected List<Integer> getFreePes() {
+	protected FreePesIndex getFreePes() {
 		return freePes;
 	}
 
@@ -276,10 +626,192 @@ public class VmAllocationPolicyOpta extends VmAllocationPolicy {
 	 * 
 	 * @param freePes the new free pes
 	 */
-	protected void setFreePes(List<Integer> freePes) {
+	protected void setFreePes(FreePesIndex freePes) {
 		this.freePes = freePes;
 	}
 
+	/**
+	 * Gets the solver configuration resource used to allocate VMs.
+	 *
+	 * @return the solver configuration resource
+	 */
+	public String getSolverConfig() {
+		return solverConfig;
+	}
+
+	/**
+	 * Sets the solver configuration resource used to allocate VMs
+	 * (e.g. {@link #SOLVER_CONFIG_HOSTVM_STREAMS}).
+	 *
+	 * @param solverConfig the solver configuration resource
+	 */
+	public void setSolverConfig(String solverConfig) {
+		this.solverConfig = solverConfig;
+	}
+
+	/**
+	 * Gets the number of move threads used by the solver.
+	 *
+	 * @return the moveThreadCount, null if the solver configuration value is used
+	 */
+	public String getMoveThreadCount() {
+		return moveThreadCount;
+	}
+
+	/**
+	 * Sets the number of move threads used by the solver (e.g. "4" or "AUTO"). The score
+	 * calculators are thread-safe, so the HostVm solve can use multithreaded incremental solving.
+	 *
+	 * @param moveThreadCount the moveThreadCount, null to use the solver configuration value
+	 */
+	public void setMoveThreadCount(String moveThreadCount) {
+		this.moveThreadCount = moveThreadCount;
+	}
+
+	/**
+	 * Gets the termination policy of the solver.
+	 *
+	 * @return the termination policy, null if the solver configuration termination is used
+	 */
+	public AdaptiveTermination getTermination() {
+		return termination;
+	}
+
+	/**
+	 * Sets the termination policy of the solver. The solver configuration termination stays as the
+	 * upper limit.
+	 *
+	 * @param termination the termination policy, null to use only the solver configuration termination
+	 */
+	public void setTermination(AdaptiveTermination termination) {
+		this.termination = termination;
+	}
+
+	public boolean isStopAtHostLowerBound() {
+		return stopAtHostLowerBound;
+	}
+
+	public void setStopAtHostLowerBound(boolean stopAtHostLowerBound) {
+		this.stopAtHostLowerBound = stopAtHostLowerBound;
+	}
+
+	/**
+	 * Gets the previous host table.
+	 *
+	 * @return the previous host table
+	 */
+	protected Map<String, Host> getPreviousHostTable() {
+		return previousHostTable;
+	}
+
+	/**
+	 * Sets the previous host table.
+	 *
+	 * @param previousHostTable the previous host table
+	 */
+	protected void setPreviousHostTable(Map<String, Host> previousHostTable) {
+		this.previousHostTable = previousHostTable;
+	}
+
+	/**
+	 * Limits the usage history of every host to its last samples, so memory stays flat in long
+	 * simulations. The current history of the hosts is discarded.
+	 *
+	 * @param capacity the number of samples kept per host, 0 to keep all of them
+	 */
+	public void setHistoryCapacity(int capacity) {
+		for (Host host : getHostList()) {
+			host.setUsageHistory(capacity > 0 ? new HostUsageHistory(capacity) : new HostUsageHistory());
+		}
+	}
+
+	/**
+	 * Checks if re-planned VMs start from their previous host.
+	 *
+	 * @return true if warm start is enabled
+	 */
+	public boolean isWarmStart() {
+		return warmStart;
+	}
+
+	/**
+	 * Sets if re-planned VMs start from their previous host, so only new and displaced VMs
+	 * go through the construction heuristic.
+	 *
+	 * @param warmStart true to enable warm start
+	 */
+	public void setWarmStart(boolean warmStart) {
+		this.warmStart = warmStart;
+	}
+
+	/**
+	 * Checks if batches that fit with best fit skip the solver.
+	 *
+	 * @return true if the greedy shortcut is enabled
+	 */
+	public boolean isGreedyShortcut() {
+		return greedyShortcut;
+	}
+
+	/**
+	 * Sets if batches where every VM fits with best fit decreasing are allocated without the solver.
+	 * The result is feasible but its soft score is not optimized.
+	 *
+	 * @param greedyShortcut true to enable the greedy shortcut
+	 */
+	public void setGreedyShortcut(boolean greedyShortcut) {
+		this.greedyShortcut = greedyShortcut;
+	}
+
+	public double getMigrationCostWeight() {
+		return migrationCostWeight;
+	}
+
+	/**
+	 * Sets the soft score penalty of a re-plan per MB of RAM of each VM that changes host.
+	 * Higher values give fewer migrations; 0 re-plans as if the VMs were not allocated.
+	 *
+	 * @param migrationCostWeight the penalty per MB of RAM
+	 */
+	public void setMigrationCostWeight(double migrationCostWeight) {
+		this.migrationCostWeight = migrationCostWeight;
+	}
+
+	/**
+	 * Checks if batches are created with best fit and improved by a background solve.
+	 *
+	 * @return true if asynchronous solving is enabled
+	 */
+	public boolean isAsyncSolving() {
+		return asyncSolving;
+	}
+
+	/**
+	 * Sets if batches are created at once with best fit decreasing while the HostSlot solver keeps
+	 * improving them in a background thread. After {@link #getAsyncApplyDelay()} of simulated time
+	 * the datacenter migrates the VMs whose host the solver has changed. A new batch discards the
+	 * background solve of the previous one.
+	 *
+	 * @param asyncSolving true to enable asynchronous solving
+	 */
+	public void setAsyncSolving(boolean asyncSolving) {
+		this.asyncSolving = asyncSolving;
+	}
+
+	public double getAsyncApplyDelay() {
+		return asyncApplyDelay;
+	}
+
+	/**
+	 * Sets the simulated time between the creation of a batch and the migrations of its improved plan.
+	 * If the background solve has not finished by then, the simulation waits for it.
+	 *
+	 * @param asyncApplyDelay the delay in simulated seconds
+	 */
+	public void setAsyncApplyDelay(double asyncApplyDelay) {
+		this.asyncApplyDelay = asyncApplyDelay;
+	}
+
 	@Override
 	public List<Map<String, Object>> optimizeAllocation(List<? extends Vm> vmList) {
 		// TODO Auto-generated method stub
@@ -290,11 +822,11 @@ public class VmAllocationPolicyOpta extends VmAllocationPolicy {
 	public boolean allocateHostForVm(Vm vm, Host host) {
 		if (host.vmCreate(vm)) { // if vm has been succesfully created in the host
 			getVmTable().put(vm.getUid(), host);
+			getPreviousHostTable().put(vm.getUid(), host);
 
 			int requiredPes = vm.getNumberOfPes();
-			int idx = getHostList().indexOf(host);
 			getUsedPes().put(vm.getUid(), requiredPes);
-			getFreePes().set(idx, getFreePes().get(idx) - requiredPes);
+			getFreePes().addFreePes(getFreePes().indexOf(host), -requiredPes);
 
 			Log.formatLine(
 					"%.2f: VM #" + vm.getId() + " has been allocated to the host #" + host.getId(),
@@ -0,0 +1,125 @@
+package com.optacloud.benchmark;
+
+import com.optacloud.ScoreCalculation.HostVm.CustomScorePlan;
+import com.optacloud.ScoreCalculation.HostVm.HostVmCustomScoreCalculator;
+import com.optacloud.ScoreCalculation.HostVm.HostVmIncrementalScoreCalculator;
+import com.optacloud.domain.HostCapacityTable;
+import com.optacloud.domain.HostVmBalance;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Vm;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Comprova que HostVmIncrementalScoreCalculator dona la mateixa puntuació que el càlcul des de zero
+ * (HostVmCustomScoreCalculator) després de seqüències llargues de moviments aleatoris (change, amb
+ * alguna desassignació, i swap). Tots els filtres de CustomScoreConfig.txt s'activen, de host i de
+ * datacenter, hard i soft. Cada problema és una replanificació: part de les VMs ja estan allotjades
+ * (costos de migració) i hi ha VMs fora del problema que ocupen hosts (hosts ja utilitzats).
+ * Els hosts no pertanyen a cap datacenter, per tant el cost és 0. Surt amb codi 1 a la primera diferència.
+ *
+ * Ús: HostVmIncrementalScoreCheck [hosts] [vms] [moviments] [llavors]
+ */
+public class HostVmIncrementalScoreCheck {
+
+    //Punts soft per MB de RAM de cada VM migrada
+    private static final double MIGRATION_WEIGHT = 0.01;
+
+    public static void main(String[] args) throws IOException {
+        int numHosts = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int numVms = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int moves = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+        int seeds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        Log.disable();
+        useAllFilters(numHosts);
+
+        HostVmCustomScoreCalculator scratch = new HostVmCustomScoreCalculator();
+        for (long seed = 0; seed < seeds; ++seed) {
+            HostVmBalance dc = createReplan(numHosts, numVms, seed);
+            List<Host> hostList = dc.getHostlist();
+            List<Vm> vmList = dc.getVmlist();
+            Random r = new Random(seed);
+
+            HostVmIncrementalScoreCalculator incremental = new HostVmIncrementalScoreCalculator();
+            incremental.resetWorkingSolution(dc);
+            for (int m = 0; m < moves; ++m) {
+                Vm vm = vmList.get(r.nextInt(vmList.size()));
+                if (r.nextInt(4) == 0) {
+                    //Swap: les dues VMs s'intercanvien el host
+                    Vm other = vmList.get(r.nextInt(vmList.size()));
+                    Host host = vm.getHost();
+                    incremental.beforeVariableChanged(vm, "host");
+                    vm.setHost(other.getHost());
+                    incremental.afterVariableChanged(vm, "host");
+                    incremental.beforeVariableChanged(other, "host");
+                    other.setHost(host);
+                    incremental.afterVariableChanged(other, "host");
+                } else {
+                    //De tant en tant es desassigna, com fa la construction heuristic
+                    Host host = r.nextInt(20) == 0 ? null : hostList.get(r.nextInt(hostList.size()));
+                    incremental.beforeVariableChanged(vm, "host");
+                    vm.setHost(host);
+                    incremental.afterVariableChanged(vm, "host");
+                }
+
+                HardSoftScore expected = scratch.calculateScore(dc);
+                HardSoftScore actual = incremental.calculateScore();
+                if (!expected.equals(actual)) {
+                    System.out.println("Seed " + seed + ", move " + m + ": incremental " + actual
+                            + ", from scratch " + expected);
+                    System.exit(1);
+                }
+            }
+            System.out.println("Seed " + seed + ": " + moves + " moves OK");
+        }
+    }
+
+    //Filtres de datacenter i de host, amb llindars que es compleixen i s'incompleixen durant la prova
+    private static void useAllFilters(int numHosts) throws IOException {
+        List<String> lines = Arrays.asList(
+                "[max_cost] (0) {hard}",
+                "[min_host] (" + numHosts/2 + ") {soft}",
+                "[max_host] (" + numHosts*3/4 + ") {hard}",
+                "[max_pow] (" + numHosts*60 + ") {soft}",
+                "[max_cpu] (80) {hard}",
+                "[max_ram] (70) {soft}",
+                "[max_bw] (90) {hard}",
+                "[max_stor] (50) {soft}",
+                "[min_cpu] (10) {soft}",
+                "[min_ram] (20) {hard}",
+                "[min_bw] (5) {soft}",
+                "[min_stor] (1) {hard}");
+        Path config = Files.createTempFile("CustomScoreConfig", ".txt");
+        config.toFile().deleteOnExit();
+        Files.write(config, lines, StandardCharsets.UTF_8);
+        CustomScorePlan.use(config);
+    }
+
+    //Un terç de les VMs del problema ja són a un host, i altres tantes VMs de fora del problema també
+    private static HostVmBalance createReplan(int numHosts, int numVms, long seed) {
+        Random r = new Random(seed);
+        List<Host> hostList = ProblemGenerator.createHosts(numHosts, r);
+        List<Vm> vmList = ProblemGenerator.createVms(numVms, r);
+        List<Vm> others = new ArrayList<Vm>();
+        for (Vm vm : ProblemGenerator.createVms(numVms/3, r)) {
+            others.add(new Vm(numVms + vm.getId(), vm.getUserId(), vm.getMips(), vm.getNumberOfPes(), vm.getRam(),
+                    vm.getBw(), vm.getSize(), vm.getVmm(), vm.getCloudletScheduler()));
+        }
+
+        for (Vm vm : others) hostList.get(r.nextInt(numHosts)).vmCreate(vm);
+        for (int v = 0; v < numVms/3; ++v) hostList.get(r.nextInt(numHosts)).vmCreate(vmList.get(v));
+
+        HostCapacityTable table = new HostCapacityTable(hostList, vmList, MIGRATION_WEIGHT);
+        return new HostVmBalance(hostList, vmList, table);
+    }
+}
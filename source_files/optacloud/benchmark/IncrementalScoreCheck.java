@@ -0,0 +1,56 @@
+package com.optacloud.benchmark;
+
+import com.optacloud.ScoreCalculation.VmCloudlet.VmCloudletIncrementalScoreCalculator;
+import com.optacloud.ScoreCalculation.VmCloudlet.VmCloudletSimpleScoreCalculator;
+import com.optacloud.domain.VmCloudletBalance;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Vm;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Comprova que VmCloudletIncrementalScoreCalculator dona la mateixa puntuació que el càlcul des de zero
+ * (VmCloudletSimpleScoreCalculator) després de seqüències llargues de moviments aleatoris, igual que
+ * faria el FULL_ASSERT del solver. Surt amb codi 1 a la primera diferència.
+ *
+ * Ús: IncrementalScoreCheck [vms] [cloudlets] [moviments] [llavors]
+ */
+public class IncrementalScoreCheck {
+
+    public static void main(String[] args) {
+        int numVms = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int numCloudlets = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int moves = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+        int seeds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        VmCloudletSimpleScoreCalculator simple = new VmCloudletSimpleScoreCalculator();
+        for (long seed = 0; seed < seeds; ++seed) {
+            VmCloudletBalance dc = ProblemGenerator.createVmCloudletBalance(numVms, numCloudlets, seed);
+            List<Vm> vmList = dc.getVmlist();
+            List<Cloudlet> cloudletList = dc.getCloudletlist();
+            Random r = new Random(seed);
+
+            VmCloudletIncrementalScoreCalculator incremental = new VmCloudletIncrementalScoreCalculator();
+            incremental.resetWorkingSolution(dc);
+            for (int m = 0; m < moves; ++m) {
+                Cloudlet cl = cloudletList.get(r.nextInt(cloudletList.size()));
+                //De tant en tant es desassigna, com fa la construction heuristic
+                Vm vm = r.nextInt(20) == 0 ? null : vmList.get(r.nextInt(vmList.size()));
+                incremental.beforeVariableChanged(cl, "vm");
+                cl.setVm(vm);
+                incremental.afterVariableChanged(cl, "vm");
+
+                HardSoftScore expected = simple.calculateScore(dc);
+                HardSoftScore actual = incremental.calculateScore();
+                if (!expected.equals(actual)) {
+                    System.out.println("Seed " + seed + ", move " + m + ": incremental " + actual
+                            + ", from scratch " + expected);
+                    System.exit(1);
+                }
+            }
+            System.out.println("Seed " + seed + ": " + moves + " moves OK");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.optacloud.benchmark;
+
+import com.optacloud.SolverCache;
+import com.optacloud.VmAllocationPolicyOpta;
+import com.optacloud.domain.HostVmBalance;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+
+/**
+ * Mesura quants càlculs de puntuació per segon fa el solver HostVm amb 1, 2, 4, 8 i 16 move threads
+ * (moveThreadCount). Amb 1 fil s'utilitza el solver sense move threads (NONE).
+ *
+ * Ús: MoveThreadScalingBenchmark [hosts] [vms] [segons per execució] [fils...]
+ */
+public class MoveThreadScalingBenchmark {
+
+    private static final int[] DEFAULT_THREADS = {1, 2, 4, 8, 16};
+
+    public static void main(String[] args) {
+        int numHosts = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int numVms = args.length > 1 ? Integer.parseInt(args[1]) : 6000;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 30L;
+        int[] threads = DEFAULT_THREADS;
+        if (args.length > 3) {
+            threads = new int[args.length - 3];
+            for (int i = 3; i < args.length; ++i) threads[i - 3] = Integer.parseInt(args[i]);
+        }
+
+        String resource = VmAllocationPolicyOpta.SOLVER_CONFIG_HOSTVM;
+        System.out.println("Hosts: " + numHosts + " VMs: " + numVms + " Time: " + seconds + " s");
+        System.out.println("threads;scoreCalculations;millis;scoreCalculationsPerSecond;bestScore");
+
+        for (int t : threads) {
+            //Mateix problema per a totes les execucions
+            HostVmBalance problem = ProblemGenerator.createHostVmBalance(numHosts, numVms, 0L);
+
+            SolverFactory<HostVmBalance> factory = SolverCache.<HostVmBalance>getFactory(resource).cloneSolverFactory();
+            factory.getSolverConfig().setMoveThreadCount(t == 1 ? "NONE" : Integer.toString(t));
+            TerminationConfig terminationConfig = new TerminationConfig();
+            terminationConfig.setSecondsSpentLimit(seconds);
+            factory.getSolverConfig().setTerminationConfig(terminationConfig);
+
+            DefaultSolver<HostVmBalance> solver = (DefaultSolver<HostVmBalance>) factory.buildSolver();
+            solver.solve(problem);
+
+            long millis = solver.getTimeMillisSpent();
+            long count = solver.getScoreCalculationCount();
+            long perSecond = millis == 0 ? 0 : count * 1000L / millis;
+            System.out.println(t + ";" + count + ";" + millis + ";" + perSecond + ";" + solver.getBestScore());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.optacloud.benchmark;
+
+import org.optaplanner.benchmark.api.PlannerBenchmark;
+import org.optaplanner.benchmark.api.PlannerBenchmarkFactory;
+import org.optaplanner.benchmark.impl.DefaultPlannerBenchmark;
+import org.optaplanner.benchmark.impl.result.PlannerBenchmarkResult;
+import org.optaplanner.benchmark.impl.result.SingleBenchmarkResult;
+import org.optaplanner.benchmark.impl.result.SolverBenchmarkResult;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Executa el PlannerBenchmark de tots els score calculators i combinacions de construction
+ * heuristic i local search sobre problemes generats amb ProblemGenerator a diverses escales.
+ * A més de l'informe HTML d'OptaPlanner, escriu un summary.csv al mateix directori.
+ *
+ * Ús: PlannerBenchmarkApp [hostvm|vmcloudlet] [segons per execució] [segons d'escalfament]
+ */
+public class PlannerBenchmarkApp {
+
+    public static final String BENCHMARK_CONFIG_HOSTVM = "com/optacloud/SolverConfiguration/BenchmarkConfigHostVm";
+    public static final String BENCHMARK_CONFIG_VMCLOUDLET = "com/optacloud/SolverConfiguration/BenchmarkConfigVmCloudlet";
+
+    //Escales: {hosts, VMs} per HostVm i {VMs, cloudlets} per VmCloudlet
+    private static final int[][] HOSTVM_SCALES = {{10, 30}, {100, 300}, {1000, 3000}};
+    private static final int[][] VMCLOUDLET_SCALES = {{10, 50}, {50, 250}, {200, 1000}};
+
+    //Llavor fixa perquè els problemes siguin els mateixos a cada execució
+    private static final long SEED = 0L;
+
+    public static void main(String[] args) throws FileNotFoundException {
+        String type = args.length > 0 ? args[0] : "hostvm";
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 30L;
+        long warmUpSeconds = args.length > 2 ? Long.parseLong(args[2]) : 30L;
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("secondsSpentLimit", seconds);
+        model.put("warmUpSecondsSpentLimit", warmUpSeconds);
+
+        PlannerBenchmark benchmark;
+        if (type.equals("vmcloudlet")) {
+            Object[] problems = new Object[VMCLOUDLET_SCALES.length];
+            for (int i = 0; i < problems.length; ++i) {
+                problems[i] = ProblemGenerator.createVmCloudletBalance(VMCLOUDLET_SCALES[i][0], VMCLOUDLET_SCALES[i][1], SEED);
+                System.out.println("Problem " + i + ": " + VMCLOUDLET_SCALES[i][0] + " VMs, " + VMCLOUDLET_SCALES[i][1] + " cloudlets");
+            }
+            benchmark = PlannerBenchmarkFactory.createFromFreemarkerXmlResource(BENCHMARK_CONFIG_VMCLOUDLET, model)
+                    .buildPlannerBenchmark(problems);
+        } else {
+            Object[] problems = new Object[HOSTVM_SCALES.length];
+            for (int i = 0; i < problems.length; ++i) {
+                problems[i] = ProblemGenerator.createHostVmBalance(HOSTVM_SCALES[i][0], HOSTVM_SCALES[i][1], SEED);
+                System.out.println("Problem " + i + ": " + HOSTVM_SCALES[i][0] + " hosts, " + HOSTVM_SCALES[i][1] + " VMs");
+            }
+            benchmark = PlannerBenchmarkFactory.createFromFreemarkerXmlResource(BENCHMARK_CONFIG_HOSTVM, model)
+                    .buildPlannerBenchmark(problems);
+        }
+
+        File report = benchmark.benchmark();
+        System.out.println("Report: " + report);
+
+        PlannerBenchmarkResult result = ((DefaultPlannerBenchmark) benchmark).getPlannerBenchmarkResult();
+        writeSummary(result, new File(result.getBenchmarkReportDirectory(), "summary.csv"));
+    }
+
+    //Una fila per solver i problema, per poder comparar execucions del benchmark
+    private static void writeSummary(PlannerBenchmarkResult result, File file) throws FileNotFoundException {
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("solver;problem;score;scoreCalculationSpeed;timeMillisSpent");
+            for (SolverBenchmarkResult solverResult : result.getSolverBenchmarkResultList()) {
+                for (SingleBenchmarkResult single : solverResult.getSingleBenchmarkResultList()) {
+                    out.println(solverResult.getName() + ";" + single.getProblemBenchmarkResult().getName() + ";"
+                            + single.getAverageScore() + ";" + single.getScoreCalculationSpeed() + ";"
+                            + single.getTimeMillisSpent());
+                }
+            }
+        }
+        System.out.println("Summary: " + file);
+    }
+}
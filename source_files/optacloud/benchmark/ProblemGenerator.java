@@ -0,0 +1,106 @@
+package com.optacloud.benchmark;
+
+import com.optacloud.domain.HostVmBalance;
+import com.optacloud.domain.VmCloudletBalance;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.power.models.PowerModelLinear;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Genera problemes HostVmBalance i VmCloudletBalance reproduïbles (mateixa llavor, mateix problema)
+ * per als benchmarks. Els hosts no pertanyen a cap datacenter, per tant el cost és 0.
+ */
+public class ProblemGenerator {
+
+    //Tipus de host: número de PEs, MIPS per PE, RAM, BW, storage
+    private static final int[][] HOST_TYPES = {
+            {4, 1000, 8192, 10000, 1000000},
+            {8, 1000, 16384, 10000, 1000000},
+            {16, 2000, 65536, 40000, 4000000}
+    };
+
+    //Tipus de VM: número de PEs, MIPS per PE, RAM, BW, size
+    private static final int[][] VM_TYPES = {
+            {1, 250, 512, 100, 10000},
+            {1, 500, 1024, 100, 10000},
+            {2, 500, 2048, 500, 20000},
+            {4, 1000, 4096, 1000, 40000}
+    };
+
+    private static final double MAX_POWER = 100;
+    private static final double STATIC_POWER_PERCENT = 0.2;
+
+    public static List<Host> createHosts(int numHosts, Random r) {
+        List<Host> hostList = new ArrayList<Host>();
+        for (int i = 0; i < numHosts; ++i) {
+            int[] type = HOST_TYPES[r.nextInt(HOST_TYPES.length)];
+            List<Pe> peList = new ArrayList<Pe>();
+            for (int j = 0; j < type[0]; ++j) {
+                peList.add(new Pe(j, new PeProvisionerSimple(type[1])));
+            }
+            hostList.add(new Host(i, new RamProvisionerSimple(type[2]), new BwProvisionerSimple(type[3]), type[4],
+                    peList, new VmSchedulerTimeShared(peList), new PowerModelLinear(MAX_POWER, STATIC_POWER_PERCENT)));
+        }
+        return hostList;
+    }
+
+    public static List<Vm> createVms(int numVms, Random r) {
+        List<Vm> vmList = new ArrayList<Vm>();
+        for (int i = 0; i < numVms; ++i) {
+            int[] type = VM_TYPES[r.nextInt(VM_TYPES.length)];
+            vmList.add(new Vm(i, 0, type[1], type[0], type[2], type[3], type[4], "Xen",
+                    new CloudletSchedulerTimeShared()));
+        }
+        return vmList;
+    }
+
+    public static List<Cloudlet> createCloudlets(int numCloudlets, Random r) {
+        List<Cloudlet> cloudletList = new ArrayList<Cloudlet>();
+        for (int i = 0; i < numCloudlets; ++i) {
+            long length = 1000L * (1 + r.nextInt(100));
+            Cloudlet cloudlet = new Cloudlet(i, length, 1, 300, 300, new UtilizationModelFull(),
+                    new UtilizationModelFull(), new UtilizationModelFull());
+            cloudlet.setUserId(0);
+            cloudletList.add(cloudlet);
+        }
+        return cloudletList;
+    }
+
+    /**
+     * Crea un problema HostVm.
+     *
+     * @param numHosts the number of hosts
+     * @param numVms the number of VMs to allocate
+     * @param seed the random seed
+     * @return a new unsolved problem
+     */
+    public static HostVmBalance createHostVmBalance(int numHosts, int numVms, long seed) {
+        Random r = new Random(seed);
+        return new HostVmBalance(createHosts(numHosts, r), createVms(numVms, r));
+    }
+
+    /**
+     * Crea un problema VmCloudlet.
+     *
+     * @param numVms the number of VMs
+     * @param numCloudlets the number of cloudlets to assign
+     * @param seed the random seed
+     * @return a new unsolved problem
+     */
+    public static VmCloudletBalance createVmCloudletBalance(int numVms, int numCloudlets, long seed) {
+        Random r = new Random(seed);
+        return new VmCloudletBalance(createVms(numVms, r), createCloudlets(numCloudlets, r));
+    }
+}
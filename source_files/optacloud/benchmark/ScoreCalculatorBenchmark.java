@@ -0,0 +1,120 @@
+package com.optacloud.benchmark;
+
+import com.optacloud.ScoreCalculation.HostVm.HostVmBinaryScoreCalculator;
+import com.optacloud.ScoreCalculation.HostVm.HostVmCustomScoreCalculator;
+import com.optacloud.ScoreCalculation.HostVm.HostVmMinLostScoreCalculator;
+import com.optacloud.ScoreCalculation.HostVm.HostVmMinPowerScoreCalculator;
+import com.optacloud.ScoreCalculation.HostVm.HostVmSimpleScoreCalculator;
+import com.optacloud.ScoreCalculation.VmCloudlet.VmCloudletSimpleScoreCalculator;
+import com.optacloud.domain.HostVmBalance;
+import com.optacloud.domain.VmCloudletBalance;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Microbenchmark JMH de calculateScore dels score calculators easy, sobre solucions sintètiques
+ * completament assignades de 10 a 10.000 hosts (3 VMs per host, 5 cloudlets per VM).
+ * Amb main() s'executa amb el GCProfiler, que afegeix gc.alloc.rate.norm (bytes per crida).
+ *
+ * Ús: ScoreCalculatorBenchmark [regex de JMH]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreCalculatorBenchmark {
+
+    private static final int VMS_PER_HOST = 3;
+    private static final int CLOUDLETS_PER_VM = 5;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int hosts;
+
+    private HostVmBalance hostVm;
+    private VmCloudletBalance vmCloudlet;
+
+    private final HostVmSimpleScoreCalculator simple = new HostVmSimpleScoreCalculator();
+    private final HostVmBinaryScoreCalculator binary = new HostVmBinaryScoreCalculator();
+    private final HostVmMinLostScoreCalculator minLost = new HostVmMinLostScoreCalculator();
+    private final HostVmMinPowerScoreCalculator minPower = new HostVmMinPowerScoreCalculator();
+    private final HostVmCustomScoreCalculator custom = new HostVmCustomScoreCalculator();
+    private final VmCloudletSimpleScoreCalculator vmCloudletSimple = new VmCloudletSimpleScoreCalculator();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //Assignació aleatòria però reproduïble, com si fos un pas del local search
+        Random r = new Random(1L);
+
+        hostVm = ProblemGenerator.createHostVmBalance(hosts, hosts * VMS_PER_HOST, 0L);
+        List<Host> hostList = hostVm.getHostlist();
+        for (Vm vm : hostVm.getVmlist()) {
+            vm.setHost(hostList.get(r.nextInt(hostList.size())));
+        }
+
+        vmCloudlet = ProblemGenerator.createVmCloudletBalance(hosts, hosts * CLOUDLETS_PER_VM, 0L);
+        List<Vm> vmList = vmCloudlet.getVmlist();
+        for (Cloudlet cloudlet : vmCloudlet.getCloudletlist()) {
+            cloudlet.setVm(vmList.get(r.nextInt(vmList.size())));
+        }
+    }
+
+    @Benchmark
+    public HardSoftScore hostVmSimple() {
+        return simple.calculateScore(hostVm);
+    }
+
+    @Benchmark
+    public HardSoftScore hostVmBinary() {
+        return binary.calculateScore(hostVm);
+    }
+
+    @Benchmark
+    public HardSoftScore hostVmMinLost() {
+        return minLost.calculateScore(hostVm);
+    }
+
+    @Benchmark
+    public HardSoftScore hostVmMinPower() {
+        return minPower.calculateScore(hostVm);
+    }
+
+    @Benchmark
+    public HardSoftScore hostVmCustom() {
+        return custom.calculateScore(hostVm);
+    }
+
+    @Benchmark
+    public HardSoftScore vmCloudletSimple() {
+        return vmCloudletSimple.calculateScore(vmCloudlet);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ScoreCalculatorBenchmark.class.getSimpleName() + (args.length > 0 ? "." + args[0] : ""))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
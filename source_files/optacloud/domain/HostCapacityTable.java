@@ -0,0 +1,476 @@
+package com.optacloud.domain;
+
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.power.models.PowerCurve;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fotografia de l'estat dels hosts i de la demanda de les VMs, feta un cop per a cada crida a
+ * VmAllocationPolicyOpta.allocateHostForVm(List). Les dades es guarden en columnes indexades per la
+ * posició del host a la llista (índex dens), de manera que els càlculs de puntuació no han de tornar
+ * a consultar els provisioners ni els PEs de cada host. Es immutable un cop creada.
+ */
+public class HostCapacityTable {
+
+    //Recursos
+    public static final int MIPS = 0;
+    public static final int RAM = 1;
+    public static final int BW = 2;
+    public static final int STORAGE = 3;
+    public static final int RESOURCES = 4;
+
+    /** Host List */
+    private final List<Host> hostList;
+
+    /** Key: host, value: posició del host a les columnes */
+    private final Map<Host, Integer> hostIndex;
+
+    //Ús actual de cada host, abans de planificar: baseUsage[recurs][host]
+    private final int[][] baseUsage;
+
+    //Capacitat total de cada host: capacity[recurs][host]
+    private final double[][] capacity;
+
+    //Capacitat lliure de cada host abans de planificar: freeCapacity[recurs][host]
+    private final double[][] freeCapacity;
+
+    //Hosts que ja tenien VMs abans de planificar
+    private final boolean[] previouslyUsed;
+
+    //Pes de cada recurs en la potència consumida
+    private final double[] cpuUtilizationCt;
+    private final double[] ramUtilizationCt;
+    private final double[] bwUtilizationCt;
+
+    //Corba de potència del power model de cada host (null si no en té)
+    private final PowerCurve[] powerCurves;
+
+    //Demanda de cada VM (posició a la llista de VMs del problema): vmDemand[vm*RESOURCES + recurs]
+    private final int[] vmDemand;
+
+    /** The cost per each unity of RAM memory. */
+    private final double costPerMem;
+
+    /** The cost per each unit of storage. */
+    private final double costPerStorage;
+
+    /** The cost of each byte of bandwidth (bw) consumed. */
+    private final double costPerBw;
+
+    /** Price/CPU-unit. If unit = sec., then the price is defined as G$/CPU-sec. */
+    private final double costPerCPU;
+
+    //Replanificació: host actual de cada VM (posició, -1 si no en té) i cost de treure-la'n
+    private final int[] currentHost;
+    private final int[] migrationCost;
+
+    /** Key: VM (userId i id), value: posició de la VM, per a les còpies de la working solution */
+    private final Map<Long, Integer> vmIndex;
+
+    //false a les parts d'un partitioned search: els filtres de datacenter no s'hi avaluen
+    private final boolean globalFilters;
+
+    public HostCapacityTable(List<Host> hostList, List<Vm> vmList) {
+        this(hostList, vmList, false, 0.0);
+    }
+
+    /**
+     * Fotografia per replanificar VMs que ja estan allotjades sense destruir-les. L'ús de les VMs de
+     * vmList que ja tenen host no compta com a ús base (el solver les pot moure) i assignar-les a un
+     * altre host resta migrationWeight punts soft per cada MB de RAM de la VM.
+     *
+     * @param hostList the host list
+     * @param vmList the VMs to plan, allocated ones included
+     * @param migrationWeight the soft score penalty per MB of RAM of each migrated VM
+     */
+    public HostCapacityTable(List<Host> hostList, List<Vm> vmList, double migrationWeight) {
+        this(hostList, vmList, true, migrationWeight);
+    }
+
+    private HostCapacityTable(List<Host> hostList, List<Vm> vmList, boolean replan, double migrationWeight) {
+        this.hostList = hostList;
+
+        int computerListSize = hostList.size();
+        hostIndex = new HashMap<>(computerListSize);
+        baseUsage = new int[RESOURCES][computerListSize];
+        capacity = new double[RESOURCES][computerListSize];
+        freeCapacity = new double[RESOURCES][computerListSize];
+        previouslyUsed = new boolean[computerListSize];
+        cpuUtilizationCt = new double[computerListSize];
+        ramUtilizationCt = new double[computerListSize];
+        bwUtilizationCt = new double[computerListSize];
+        powerCurves = new PowerCurve[computerListSize];
+
+        for (int i = 0; i < computerListSize; ++i) {
+            Host computer = hostList.get(i);
+            hostIndex.put(computer, i);
+            //Tenir en compte l'estat actual del host
+            baseUsage[MIPS][i] = (int) (computer.getUsedMIPS());
+            baseUsage[RAM][i] = computer.getRamProvisioner().getUsedRam();
+            baseUsage[BW][i] = (int) computer.getBwProvisioner().getUsedBw();
+            baseUsage[STORAGE][i] = (int) (computer.getTotalStorage()-computer.getStorage());
+            //tots els PE tenen els mateixos mips
+            capacity[MIPS][i] = (computer.getPeList().get(0).getPeProvisioner().getMips())*computer.getNumberOfPes();
+            capacity[RAM][i] = computer.getRamProvisioner().getRam();
+            capacity[BW][i] = computer.getBwProvisioner().getBw();
+            capacity[STORAGE][i] = computer.getTotalStorage();
+            for (int r = 0; r < RESOURCES; ++r) {
+                freeCapacity[r][i] = capacity[r][i] - baseUsage[r][i];
+            }
+            //hosts ja utilitzats previament
+            previouslyUsed[i] = computer.getVmList().size() > 0;
+            cpuUtilizationCt[i] = computer.getCpuUtilizationCt();
+            ramUtilizationCt[i] = computer.getRamUtilizationCt();
+            bwUtilizationCt[i] = computer.getBwUtilizationCt();
+            powerCurves[i] = PowerCurve.of(computer.getPowerModel());
+        }
+
+        vmDemand = new int[vmList.size()*RESOURCES];
+        for (int i = 0; i < vmList.size(); ++i) {
+            Vm vm = vmList.get(i);
+            for (int r = 0; r < RESOURCES; ++r) {
+                vmDemand[i*RESOURCES + r] = getDemand(vm, r);
+            }
+        }
+
+        if (replan) {
+            currentHost = new int[vmList.size()];
+            migrationCost = new int[vmList.size()];
+            vmIndex = new HashMap<>(vmList.size()*2);
+            int[] plannedVms = new int[computerListSize];
+            for (int v = 0; v < vmList.size(); ++v) {
+                Vm vm = vmList.get(v);
+                vmIndex.put(key(vm), v);
+                int i = vm.getHost() == null ? -1 : indexOf(vm.getHost());
+                currentHost[v] = i;
+                if (i < 0) continue;
+                //La VM ja ocupa el host: treure-la de l'ús base
+                for (int r = 0; r < RESOURCES; ++r) {
+                    baseUsage[r][i] = Math.max(0, baseUsage[r][i] - getVmDemand(v, r));
+                    freeCapacity[r][i] = capacity[r][i] - baseUsage[r][i];
+                }
+                ++plannedVms[i];
+                migrationCost[v] = (int) (migrationWeight*getVmDemand(v, RAM));
+            }
+            //Només compten com a utilitzats els hosts amb VMs que no es replanifiquen
+            for (int i = 0; i < computerListSize; ++i) {
+                previouslyUsed[i] = hostList.get(i).getVmList().size() > plannedVms[i];
+            }
+        } else {
+            currentHost = null;
+            migrationCost = null;
+            vmIndex = null;
+        }
+
+        DatacenterCharacteristics dcc = null;
+        if (computerListSize > 0 && hostList.get(0).getDatacenter() != null) {
+            dcc = hostList.get(0).getDatacenter().getCharacteristics();
+        }
+        if (dcc != null) {
+            costPerBw = dcc.getCostPerBw();
+            costPerMem = dcc.getCostPerMem();
+            costPerCPU = dcc.getCostPerSecond();
+            costPerStorage = dcc.getCostPerStorage();
+        } else {
+            costPerBw = costPerMem = costPerCPU = costPerStorage = 0.0;
+        }
+        globalFilters = true;
+    }
+
+    //Còpia de les columnes d'uns quants hosts i VMs (vegeu subTable)
+    private HostCapacityTable(HostCapacityTable parent, List<Host> hostList, List<Integer> hosts, List<Integer> vms) {
+        this.hostList = hostList;
+
+        int computerListSize = hosts.size();
+        hostIndex = new HashMap<>(computerListSize);
+        baseUsage = new int[RESOURCES][computerListSize];
+        capacity = new double[RESOURCES][computerListSize];
+        freeCapacity = new double[RESOURCES][computerListSize];
+        previouslyUsed = new boolean[computerListSize];
+        cpuUtilizationCt = new double[computerListSize];
+        ramUtilizationCt = new double[computerListSize];
+        bwUtilizationCt = new double[computerListSize];
+        powerCurves = new PowerCurve[computerListSize];
+
+        //Posició de cada host del pare a la part, -1 si és d'una altra part
+        int[] partIndex = new int[parent.getHostCount()];
+        Arrays.fill(partIndex, -1);
+        for (int i = 0; i < computerListSize; ++i) {
+            int h = hosts.get(i);
+            partIndex[h] = i;
+            hostIndex.put(parent.getHost(h), i);
+            for (int r = 0; r < RESOURCES; ++r) {
+                baseUsage[r][i] = parent.baseUsage[r][h];
+                capacity[r][i] = parent.capacity[r][h];
+                freeCapacity[r][i] = parent.freeCapacity[r][h];
+            }
+            previouslyUsed[i] = parent.previouslyUsed[h];
+            cpuUtilizationCt[i] = parent.cpuUtilizationCt[h];
+            ramUtilizationCt[i] = parent.ramUtilizationCt[h];
+            bwUtilizationCt[i] = parent.bwUtilizationCt[h];
+            powerCurves[i] = parent.powerCurves[h];
+        }
+
+        vmDemand = new int[vms.size()*RESOURCES];
+        for (int v = 0; v < vms.size(); ++v) {
+            System.arraycopy(parent.vmDemand, vms.get(v)*RESOURCES, vmDemand, v*RESOURCES, RESOURCES);
+        }
+
+        if (parent.hasMigrationCosts()) {
+            currentHost = new int[vms.size()];
+            migrationCost = new int[vms.size()];
+            vmIndex = new HashMap<>(vms.size()*2);
+            int[] partVm = new int[parent.getVmCount()];
+            Arrays.fill(partVm, -1);
+            for (int v = 0; v < vms.size(); ++v) partVm[vms.get(v)] = v;
+            for (Map.Entry<Long, Integer> entry : parent.vmIndex.entrySet()) {
+                int v = partVm[entry.getValue()];
+                if (v >= 0) vmIndex.put(entry.getKey(), v);
+            }
+            for (int v = 0; v < vms.size(); ++v) {
+                int current = parent.currentHost[vms.get(v)];
+                //Si el host actual és d'una altra part, qualsevol host de la part és una migració
+                if (current >= 0) current = partIndex[current] >= 0 ? partIndex[current] : computerListSize;
+                currentHost[v] = current;
+                migrationCost[v] = parent.migrationCost[vms.get(v)];
+            }
+        } else {
+            currentHost = null;
+            migrationCost = null;
+            vmIndex = null;
+        }
+
+        costPerBw = parent.costPerBw;
+        costPerMem = parent.costPerMem;
+        costPerCPU = parent.costPerCPU;
+        costPerStorage = parent.costPerStorage;
+        globalFilters = false;
+    }
+
+    /**
+     * Fotografia d'una part del problema (partitioned search): conserva l'ús base, els hosts ja utilitzats
+     * i els costos de migració de la taula original, però no hi avalua els filtres de datacenter, que
+     * tenen llindars de tot el datacenter.
+     *
+     * @param hosts the dense indexes of the hosts of the part, in the order of the part's host list
+     * @param vms the positions of the VMs of the part in this table, in the order of the part's VM list
+     * @return the capacity table of the part
+     */
+    public HostCapacityTable subTable(List<Integer> hosts, List<Integer> vms) {
+        List<Host> partHosts = new ArrayList<>(hosts.size());
+        for (int i : hosts) partHosts.add(getHost(i));
+        return new HostCapacityTable(this, partHosts, hosts, vms);
+    }
+
+    //Els filtres de datacenter (max_cost, min_host, max_host, max_pow) s'avaluen amb aquesta taula
+    public boolean hasGlobalFilters() {
+        return globalFilters;
+    }
+
+    public int getHostCount() {
+        return previouslyUsed.length;
+    }
+
+    public int getVmCount() {
+        return vmDemand.length/RESOURCES;
+    }
+
+    public Host getHost(int host) {
+        return hostList.get(host);
+    }
+
+    /**
+     * Retorna la posició del host a les columnes.
+     *
+     * @param computer the host
+     * @return the dense index of the host, -1 if it is not part of the table
+     */
+    public int indexOf(Host computer) {
+        Integer idx = hostIndex.get(computer);
+        return idx == null ? -1 : idx;
+    }
+
+    public int getBaseUsage(int host, int resource) {
+        return baseUsage[resource][host];
+    }
+
+    public double getCapacity(int host, int resource) {
+        return capacity[resource][host];
+    }
+
+    public boolean isPreviouslyUsed(int host) {
+        return previouslyUsed[host];
+    }
+
+    /**
+     * Demanda d'una VM.
+     *
+     * @param vm position of the VM in the problem's VM list
+     * @param resource {@link #MIPS}, {@link #RAM}, {@link #BW} or {@link #STORAGE}
+     * @return the VM demand of the resource
+     */
+    public int getVmDemand(int vm, int resource) {
+        return vmDemand[vm*RESOURCES + resource];
+    }
+
+    /**
+     * Demanda d'una VM qualsevol (també les còpies de la working solution).
+     *
+     * @param vm the VM
+     * @param resource {@link #MIPS}, {@link #RAM}, {@link #BW} or {@link #STORAGE}
+     * @return the VM demand of the resource
+     */
+    public static int getDemand(Vm vm, int resource) {
+        switch (resource) {
+            case MIPS: return (int) vm.getMips()*vm.getNumberOfPes();
+            case RAM: return (int) vm.getRam();
+            case BW: return (int) vm.getBw();
+            default: return (int) vm.getSize();
+        }
+    }
+
+    /**
+     * Indica si la VM cabria al host si només hi hagués l'ús d'abans de planificar. És una condició
+     * necessària: si no es compleix, la VM no hi cabrà mai, independentment de la resta de VMs.
+     *
+     * @param host the dense index of the host
+     * @param vm the VM
+     * @return true if the VM fits in the free capacity of the host
+     */
+    public boolean fits(int host, Vm vm) {
+        for (int r = 0; r < RESOURCES; ++r) {
+            if (getDemand(vm, r) > freeCapacity[r][host]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Cota inferior del número de hosts necessaris per allotjar totes les VMs del problema: per a cada
+     * recurs, quants hosts amb més capacitat lliure calen per cobrir la demanda total.
+     *
+     * @return the minimum number of hosts, getHostCount()+1 if the VMs can not fit at all
+     */
+    public int getMinHostCount() {
+        int computerListSize = getHostCount();
+        int minHosts = 0;
+        for (int r = 0; r < RESOURCES; ++r) {
+            double demand = 0.0;
+            for (int v = 0; v < getVmCount(); ++v) demand += getVmDemand(v, r);
+            if (demand <= 0.0) continue;
+
+            double[] free = freeCapacity[r].clone();
+            Arrays.sort(free);
+            int k = 0;
+            double covered = 0.0;
+            for (int i = computerListSize - 1; i >= 0 && covered < demand; --i) {
+                covered += Math.max(0.0, free[i]);
+                ++k;
+            }
+            if (covered < demand) return computerListSize + 1;
+            minHosts = Math.max(minHosts, k);
+        }
+        return minHosts;
+    }
+
+    //Hi ha VMs allotjades que el solver pot migrar (vegeu el constructor de replanificació)
+    public boolean hasMigrationCosts() {
+        return currentHost != null;
+    }
+
+    /**
+     * Host actual d'una VM en una replanificació.
+     *
+     * @param vm position of the VM in the problem's VM list
+     * @return the dense index of the current host, -1 if the VM is not allocated or this is not a re-plan,
+     *         getHostCount() if the host is in another part of a partitioned search
+     */
+    public int getCurrentHost(int vm) {
+        return currentHost == null ? -1 : currentHost[vm];
+    }
+
+    /**
+     * Cost de migració d'una VM si se li assigna un host.
+     *
+     * @param vm position of the VM in the problem's VM list
+     * @param host the dense index of the assigned host, -1 if it has no host
+     * @return the cost, 0 if the VM stays in its current host, was not allocated or has no host
+     */
+    public int getMigrationCost(int vm, int host) {
+        if (currentHost == null || host < 0 || currentHost[vm] < 0 || currentHost[vm] == host) return 0;
+        return migrationCost[vm];
+    }
+
+    /**
+     * Cost de migració d'una VM qualsevol (també les còpies de la working solution), segons el seu host.
+     *
+     * @param vm the VM
+     * @return the cost, 0 if the VM does not migrate
+     */
+    public int getMigrationCost(Vm vm) {
+        if (currentHost == null || vm.getHost() == null) return 0;
+        Integer v = vmIndex.get(key(vm));
+        return v == null ? 0 : getMigrationCost(v, indexOf(vm.getHost()));
+    }
+
+    /**
+     * Cost de migració total d'una solució.
+     *
+     * @param vmList the VM list of the solution, in the same order used to build the table
+     * @return the sum of the migration costs
+     */
+    public int getMigrationCost(List<Vm> vmList) {
+        if (currentHost == null) return 0;
+        int cost = 0;
+        for (int v = 0; v < vmList.size(); ++v) {
+            Host computer = vmList.get(v).getHost();
+            if (computer != null) cost += getMigrationCost(v, indexOf(computer));
+        }
+        return cost;
+    }
+
+    private static long key(Vm vm) {
+        return ((long) vm.getUserId() << 32) | (vm.getId() & 0xffffffffL);
+    }
+
+    //Utilització del recurs (entre 0 i 1), 1 si s'ha sobrepassat
+    public double getUtilization(int host, int resource, int usage) {
+        double total = capacity[resource][host];
+        if (usage > total) return 1.0;
+        return usage/total;
+    }
+
+    //Utilització que té en compte el power model del host
+    public double getResourceUtilization(int host, double cpu, double ram, double bw) {
+        return cpu*cpuUtilizationCt[host] + ram*ramUtilizationCt[host] + bw*bwUtilizationCt[host];
+    }
+
+    //Potència del host amb una utilització donada, igual que Host.getGlobalPower(utilization)
+    public double getPower(int host, double utilization) {
+        PowerCurve curve = powerCurves[host];
+        if (curve == null) return hostList.get(host).getGlobalPower(utilization);
+        return curve.getPower(utilization);
+    }
+
+    public double getCostPerCPU() {
+        return costPerCPU;
+    }
+
+    public double getCostPerMem() {
+        return costPerMem;
+    }
+
+    public double getCostPerBw() {
+        return costPerBw;
+    }
+
+    public double getCostPerStorage() {
+        return costPerStorage;
+    }
+}
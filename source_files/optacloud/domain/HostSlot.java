@@ -0,0 +1,62 @@
+package com.optacloud.domain;
+
+import org.optaplanner.core.api.domain.lookup.PlanningId;
+
+/**
+ * Host del model de planificació lleuger (HostSlotBalance): només la posició a la
+ * HostCapacityTable i les capacitats en enters. És immutable i el comparteixen totes les
+ * còpies de la solució; el Host de CloudSim es recupera amb HostSlotMapper.
+ */
+public class HostSlot {
+
+    private final int id;
+
+    //Posició del host a la HostCapacityTable
+    private final int index;
+
+    //Capacitat total i ús d'abans de planificar, indexats per recurs (HostCapacityTable.MIPS, ...)
+    private final int[] capacity;
+    private final int[] baseUsage;
+
+    //El host ja tenia VMs abans de planificar
+    private final boolean previouslyUsed;
+
+    public HostSlot(int id, int index, int[] capacity, int[] baseUsage, boolean previouslyUsed) {
+        this.id = id;
+        this.index = index;
+        this.capacity = capacity;
+        this.baseUsage = baseUsage;
+        this.previouslyUsed = previouslyUsed;
+    }
+
+    @PlanningId
+    public int getId() {
+        return id;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCapacity(int resource) {
+        return capacity[resource];
+    }
+
+    public int getBaseUsage(int resource) {
+        return baseUsage[resource];
+    }
+
+    //Capacitat lliure d'abans de planificar
+    public int getFreeCapacity(int resource) {
+        return capacity[resource] - baseUsage[resource];
+    }
+
+    public boolean isPreviouslyUsed() {
+        return previouslyUsed;
+    }
+
+    @Override
+    public String toString() {
+        return "HostSlot" + id;
+    }
+}
@@ -0,0 +1,75 @@
+package com.optacloud.domain;
+
+import org.optaplanner.core.api.domain.solution.PlanningEntityCollectionProperty;
+import org.optaplanner.core.api.domain.solution.PlanningScore;
+import org.optaplanner.core.api.domain.solution.PlanningSolution;
+import org.optaplanner.core.api.domain.solution.drools.ProblemFactCollectionProperty;
+import org.optaplanner.core.api.domain.solution.drools.ProblemFactProperty;
+import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.List;
+
+/**
+ * Problema HostVm amb el model lleuger: VmAssignment/HostSlot en lloc de Vm/Host de CloudSim.
+ * Es crea i s'aplica amb HostSlotMapper, i es clona amb HostSlotBalanceCloner.
+ */
+@PlanningSolution(solutionCloner = HostSlotBalanceCloner.class)
+public class HostSlotBalance {
+
+    private List<HostSlot> hostSlotList;
+
+    private List<VmAssignment> vmAssignmentList;
+
+    //Costos dels recursos i relació amb els hosts i VMs de CloudSim
+    private HostCapacityTable capacityTable;
+
+    private HardSoftScore score;
+
+    public HostSlotBalance() {
+    }
+
+    public HostSlotBalance(List<HostSlot> hostSlotList, List<VmAssignment> vmAssignmentList,
+                           HostCapacityTable capacityTable) {
+        this.hostSlotList = hostSlotList;
+        this.vmAssignmentList = vmAssignmentList;
+        this.capacityTable = capacityTable;
+    }
+
+    @ValueRangeProvider(id = "hostSlotRange")
+    @ProblemFactCollectionProperty
+    public List<HostSlot> getHostSlotList() {
+        return hostSlotList;
+    }
+
+    public void setHostSlotList(List<HostSlot> hostSlotList) {
+        this.hostSlotList = hostSlotList;
+    }
+
+    @PlanningEntityCollectionProperty
+    public List<VmAssignment> getVmAssignmentList() {
+        return vmAssignmentList;
+    }
+
+    public void setVmAssignmentList(List<VmAssignment> vmAssignmentList) {
+        this.vmAssignmentList = vmAssignmentList;
+    }
+
+    @ProblemFactProperty
+    public HostCapacityTable getCapacityTable() {
+        return capacityTable;
+    }
+
+    public void setCapacityTable(HostCapacityTable capacityTable) {
+        this.capacityTable = capacityTable;
+    }
+
+    @PlanningScore
+    public HardSoftScore getScore() {
+        return score;
+    }
+
+    public void setScore(HardSoftScore score) {
+        this.score = score;
+    }
+}
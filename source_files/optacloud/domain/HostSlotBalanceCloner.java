@@ -0,0 +1,27 @@
+package com.optacloud.domain;
+
+import org.optaplanner.core.api.domain.solution.cloner.SolutionCloner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clonador de HostSlotBalance. Els HostSlot i la HostCapacityTable són immutables i es
+ * comparteixen; de cada VmAssignment només es copia l'índex, l'id i el HostSlot assignat
+ * (la demanda és un array compartit). Substitueix el clonador genèric per reflexió.
+ */
+public class HostSlotBalanceCloner implements SolutionCloner<HostSlotBalance> {
+
+    @Override
+    public HostSlotBalance cloneSolution(HostSlotBalance original) {
+        List<VmAssignment> assignments = original.getVmAssignmentList();
+        List<VmAssignment> clonedAssignments = new ArrayList<>(assignments.size());
+        for (VmAssignment assignment : assignments) {
+            clonedAssignments.add(new VmAssignment(assignment));
+        }
+        HostSlotBalance clone = new HostSlotBalance(original.getHostSlotList(), clonedAssignments,
+                original.getCapacityTable());
+        clone.setScore(original.getScore());
+        return clone;
+    }
+}
@@ -0,0 +1,69 @@
+package com.optacloud.domain;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversió entre el model de CloudSim (Vm/Host) i el model lleuger (VmAssignment/HostSlot).
+ * Les dades surten de la HostCapacityTable, per tant la demanda i les capacitats són les
+ * mateixes que fan servir els score calculators de HostVmBalance.
+ */
+public final class HostSlotMapper {
+
+    private HostSlotMapper() {
+    }
+
+    /**
+     * Crea el problema lleuger. Les VMs que ja tenen host (p.ex. per warm start) parteixen del
+     * HostSlot corresponent.
+     *
+     * @param table the host capacity snapshot, built from the same host and VM lists
+     * @param vmList the VMs to allocate, in the same order used to build the table
+     * @return a new unsolved problem
+     */
+    public static HostSlotBalance toSolution(HostCapacityTable table, List<Vm> vmList) {
+        List<HostSlot> slots = new ArrayList<>(table.getHostCount());
+        for (int i = 0; i < table.getHostCount(); ++i) {
+            int[] capacity = new int[HostCapacityTable.RESOURCES];
+            int[] baseUsage = new int[HostCapacityTable.RESOURCES];
+            for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) {
+                capacity[r] = (int) table.getCapacity(i, r);
+                baseUsage[r] = table.getBaseUsage(i, r);
+            }
+            slots.add(new HostSlot(table.getHost(i).getId(), i, capacity, baseUsage, table.isPreviouslyUsed(i)));
+        }
+
+        List<VmAssignment> assignments = new ArrayList<>(vmList.size());
+        for (int v = 0; v < vmList.size(); ++v) {
+            Vm vm = vmList.get(v);
+            int[] demand = new int[HostCapacityTable.RESOURCES];
+            for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) demand[r] = table.getVmDemand(v, r);
+            HostSlot slot = null;
+            if (vm.getHost() != null) {
+                int i = table.indexOf(vm.getHost());
+                if (i >= 0) slot = slots.get(i);
+            }
+            assignments.add(new VmAssignment(v, vm.getId(), demand, slot));
+        }
+        return new HostSlotBalance(slots, assignments, table);
+    }
+
+    /**
+     * Host de CloudSim triat per a cada VM de la solució.
+     *
+     * @param solution the solved problem
+     * @return the host of each VM by its position in the VM list, null if it has no host
+     */
+    public static Host[] toHosts(HostSlotBalance solution) {
+        HostCapacityTable table = solution.getCapacityTable();
+        Host[] hosts = new Host[solution.getVmAssignmentList().size()];
+        for (VmAssignment assignment : solution.getVmAssignmentList()) {
+            HostSlot slot = assignment.getHostSlot();
+            hosts[assignment.getIndex()] = slot == null ? null : table.getHost(slot.getIndex());
+        }
+        return hosts;
+    }
+}
@@ -0,0 +1,15 @@
+package com.optacloud.domain;
+
+import org.apache.commons.lang3.builder.CompareToBuilder;
+
+import java.util.Comparator;
+
+//Mateix ordre que HostStrengthComparatorClass: els hosts amb més MIPS són més forts
+public class HostSlotStrengthComparator implements Comparator<HostSlot> {
+    public int compare(HostSlot a, HostSlot b) {
+        return new CompareToBuilder()
+                .append(a.getCapacity(HostCapacityTable.MIPS), b.getCapacity(HostCapacityTable.MIPS))
+                .append(a.getId(), b.getId())
+                .toComparison();
+    }
+}
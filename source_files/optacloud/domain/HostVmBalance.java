@@ -4,6 +4,8 @@ import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Vm;
 
 import org.optaplanner.core.api.domain.solution.PlanningEntityCollectionProperty;
+import org.optaplanner.core.api.domain.solution.drools.ProblemFactCollectionProperty;
+import org.optaplanner.core.api.domain.solution.drools.ProblemFactProperty;
 import org.optaplanner.core.api.domain.solution.PlanningScore;
 import org.optaplanner.core.api.domain.solution.PlanningSolution;
 import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
@@ -18,17 +20,26 @@ public class HostVmBalance {
 
     private List<Vm> vmlist;
 
+    //Estat dels hosts i demanda de les VMs en el moment de planificar
+    private HostCapacityTable capacityTable;
+
     private HardSoftScore score;
 
     public HostVmBalance() {
     }
 
     public HostVmBalance(List<Host> hostlist, List<Vm> vmlist) {
+        this(hostlist, vmlist, new HostCapacityTable(hostlist, vmlist));
+    }
+
+    public HostVmBalance(List<Host> hostlist, List<Vm> vmlist, HostCapacityTable capacityTable) {
         this.hostlist = hostlist;
         this.vmlist = vmlist;
+        this.capacityTable = capacityTable;
     }
 
     @ValueRangeProvider(id = "hostRange")
+    @ProblemFactCollectionProperty
     public List<Host> getHostlist() {
         return hostlist;
     }
@@ -46,6 +57,15 @@ public class HostVmBalance {
         this.vmlist = vmlist;
     }
 
+    @ProblemFactProperty
+    public HostCapacityTable getCapacityTable() {
+        return capacityTable;
+    }
+
+    public void setCapacityTable(HostCapacityTable capacityTable) {
+        this.capacityTable = capacityTable;
+    }
+
     @PlanningScore
     public HardSoftScore getScore() {
         return score;
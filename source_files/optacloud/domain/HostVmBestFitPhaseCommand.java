@@ -0,0 +1,108 @@
+package com.optacloud.domain;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.phase.custom.CustomPhaseCommand;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Solució inicial greedy (best fit decreasing) sense calcular cap puntuació: les VMs sense host,
+ * de més a menys difícils segons VmDifficultyComparatorClass, van al host amb menys MIPS lliures
+ * on hi caben tots els recursos. Els hosts es guarden en un TreeSet ordenat per MIPS lliures,
+ * per tant cada VM costa O(log H) si el primer candidat té prou RAM, BW i storage.
+ * Les VMs que no caben enlloc queden sense host per a la construction heuristic següent.
+ */
+public class HostVmBestFitPhaseCommand implements CustomPhaseCommand<HostVmBalance> {
+
+    @Override
+    public void changeWorkingSolution(ScoreDirector<HostVmBalance> scoreDirector) {
+        HostVmBalance solution = scoreDirector.getWorkingSolution();
+        List<Vm> vmList = solution.getVmlist();
+        Host[] hosts = assign(solution.getCapacityTable(), vmList);
+        for (int v = 0; v < vmList.size(); ++v) {
+            Vm vm = vmList.get(v);
+            if (vm.getHost() != null || hosts[v] == null) continue;
+            scoreDirector.beforeVariableChanged(vm, "host");
+            vm.setHost(hosts[v]);
+            scoreDirector.afterVariableChanged(vm, "host");
+        }
+        scoreDirector.triggerVariableListeners();
+    }
+
+    /**
+     * Assigna les VMs sense host amb best fit decreasing. També es pot fer servir sense solver.
+     * Les VMs que ja tenen host (p.ex. per warm start) ocupen la seva capacitat i no es mouen.
+     *
+     * @param table the host capacity snapshot of the problem
+     * @param vmList the VM list, in the same order used to build the table
+     * @return the host of each VM by its position (the current one if it already had a host),
+     * null if the VM does not fit in any host
+     */
+    public static Host[] assign(HostCapacityTable table, List<Vm> vmList) {
+        int computerListSize = table.getHostCount();
+        double[][] free = new double[HostCapacityTable.RESOURCES][computerListSize];
+        for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) {
+            for (int i = 0; i < computerListSize; ++i) {
+                free[r][i] = table.getCapacity(i, r) - table.getBaseUsage(i, r);
+            }
+        }
+
+        Host[] hosts = new Host[vmList.size()];
+        List<Integer> pending = new ArrayList<>();
+        for (int v = 0; v < vmList.size(); ++v) {
+            Host computer = vmList.get(v).getHost();
+            int i = computer == null ? -1 : table.indexOf(computer);
+            if (i < 0) {
+                pending.add(v);
+                continue;
+            }
+            hosts[v] = computer;
+            for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) free[r][i] -= table.getVmDemand(v, r);
+        }
+
+        //Índex dels hosts per MIPS lliures: clau = MIPS lliures (part alta) i posició del host (part baixa)
+        TreeSet<Long> index = new TreeSet<>();
+        for (int i = 0; i < computerListSize; ++i) {
+            if (free[HostCapacityTable.MIPS][i] >= 0) index.add(key(free[HostCapacityTable.MIPS][i], i));
+        }
+
+        //De més a menys difícil
+        final VmDifficultyComparatorClass comparator = new VmDifficultyComparatorClass();
+        Collections.sort(pending, (a, b) -> comparator.compare(vmList.get(b), vmList.get(a)));
+
+        for (int v : pending) {
+            int mips = table.getVmDemand(v, HostCapacityTable.MIPS);
+            Iterator<Long> candidates = index.tailSet(key(mips, 0)).iterator();
+            while (candidates.hasNext()) {
+                long k = candidates.next();
+                int i = (int) k;
+                if (!fitsRest(table, free, i, v)) continue;
+
+                candidates.remove();
+                for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) free[r][i] -= table.getVmDemand(v, r);
+                index.add(key(free[HostCapacityTable.MIPS][i], i));
+                hosts[v] = table.getHost(i);
+                break;
+            }
+        }
+        return hosts;
+    }
+
+    //RAM, BW i storage; els MIPS ja els garanteix l'índex
+    private static boolean fitsRest(HostCapacityTable table, double[][] free, int host, int vm) {
+        for (int r = HostCapacityTable.RAM; r < HostCapacityTable.RESOURCES; ++r) {
+            if (table.getVmDemand(vm, r) > free[r][host]) return false;
+        }
+        return true;
+    }
+
+    private static long key(double freeMips, int host) {
+        return ((long) freeMips << 32) | host;
+    }
+}
@@ -0,0 +1,19 @@
+package com.optacloud.domain;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.selector.common.decorator.SelectionFilter;
+import org.optaplanner.core.impl.heuristic.selector.move.generic.ChangeMove;
+
+//Descarta els moviments que porten una VM a un host on no cap ni amb la capacitat lliure d'abans de planificar
+public class HostVmChangeMoveFilter implements SelectionFilter<HostVmBalance, ChangeMove<HostVmBalance>> {
+
+    public boolean accept(ScoreDirector<HostVmBalance> scoreDirector, ChangeMove<HostVmBalance> move) {
+        Host computer = (Host) move.getToPlanningValue();
+        if (computer == null) return true;
+        HostCapacityTable table = scoreDirector.getWorkingSolution().getCapacityTable();
+        int i = table.indexOf(computer);
+        return i < 0 || table.fits(i, (Vm) move.getEntity());
+    }
+}
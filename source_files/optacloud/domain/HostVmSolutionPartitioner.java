@@ -0,0 +1,169 @@
+package com.optacloud.domain;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.network.datacenter.NetworkHost;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.partitionedsearch.partition.SolutionPartitioner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Divideix un HostVmBalance en partCount parts que es resolen en paral·lel (partitioned search).
+ * Els hosts s'agrupen per rack (edge switch) si són NetworkHost, o individualment si no, i cada grup
+ * va a la part amb menys capacitat lliure acumulada. Les VMs pendents van a la part amb més capacitat
+ * lliure restant; les VMs ja assignades van a la part del seu host (si el host no és del problema,
+ * la VM es torna a planificar com una de pendent).
+ * La capacitat lliure suma els quatre recursos (MIPS, RAM, BW i storage), cadascun com a fracció
+ * de la capacitat lliure total d'aquest recurs al problema, perquè cap recurs domini el repartiment.
+ * La taula de cada part és una HostCapacityTable.subTable de l'original (ús base, hosts ja utilitzats
+ * i costos de migració d'una replanificació). Els filtres de datacenter de CustomScoreConfig.txt
+ * (max_cost, min_host, max_host, max_pow) tenen llindars de tot el datacenter i no s'avaluen dins
+ * de les parts: només els fa complir la fase de cerca global que ve després del partitioned search.
+ * El número de parts es configura al XML del solver (solutionPartitionerCustomProperties/partCount).
+ */
+public class HostVmSolutionPartitioner implements SolutionPartitioner<HostVmBalance> {
+
+    private int partCount = 4;
+
+    //Usat per ConfigUtils.applyCustomProperties
+    public void setPartCount(int partCount) {
+        this.partCount = partCount;
+    }
+
+    @Override
+    public List<HostVmBalance> splitWorkingSolution(ScoreDirector<HostVmBalance> scoreDirector,
+                                                    Integer runnablePartThreadLimit) {
+        HostVmBalance original = scoreDirector.getWorkingSolution();
+        HostCapacityTable table = original.getCapacityTable();
+        List<Host> hostList = original.getHostlist();
+        List<Vm> vmList = original.getVmlist();
+
+        int parts = Math.max(1, Math.min(partCount, hostList.size()));
+
+        //Agrupar els hosts per rack
+        Map<Object, List<Integer>> groupMap = new LinkedHashMap<>();
+        for (int i = 0; i < hostList.size(); ++i) {
+            Host computer = hostList.get(i);
+            Object rack = computer;
+            if (computer instanceof NetworkHost && ((NetworkHost) computer).sw != null) {
+                rack = ((NetworkHost) computer).sw;
+            }
+            List<Integer> group = groupMap.get(rack);
+            if (group == null) {
+                group = new ArrayList<>();
+                groupMap.put(rack, group);
+            }
+            group.add(i);
+        }
+
+        //Capacitat lliure total de cada recurs, per normalitzar
+        double[] totalFree = new double[HostCapacityTable.RESOURCES];
+        for (int i = 0; i < hostList.size(); ++i) {
+            for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) totalFree[r] += Math.max(0.0, free(table, i, r));
+        }
+
+        //Grups de més a menys capacitat lliure, cadascun a la part amb menys capacitat
+        List<List<Integer>> groups = new ArrayList<>(groupMap.values());
+        Collections.sort(groups, Comparator.comparingDouble((List<Integer> g) -> free(table, g, totalFree)).reversed());
+
+        double[] partFree = new double[parts];
+        int[] hostPart = new int[hostList.size()];
+        List<List<Host>> partHosts = new ArrayList<>(parts);
+        List<List<Vm>> partVms = new ArrayList<>(parts);
+        //Posicions a la taula original dels hosts i VMs de cada part
+        List<List<Integer>> partHostIndex = new ArrayList<>(parts);
+        List<List<Integer>> partVmIndex = new ArrayList<>(parts);
+        for (int p = 0; p < parts; ++p) {
+            partHosts.add(new ArrayList<Host>());
+            partVms.add(new ArrayList<Vm>());
+            partHostIndex.add(new ArrayList<Integer>());
+            partVmIndex.add(new ArrayList<Integer>());
+        }
+        for (List<Integer> group : groups) {
+            int p = 0;
+            for (int q = 1; q < parts; ++q) {
+                if (partFree[q] < partFree[p]) p = q;
+            }
+            for (int i : group) {
+                hostPart[i] = p;
+                partHosts.get(p).add(hostList.get(i));
+                partHostIndex.get(p).add(i);
+            }
+            partFree[p] += free(table, group, totalFree);
+        }
+
+        //VMs ja assignades a la part del seu host, la resta de més gran a més petita a la part més lliure
+        List<Integer> pending = new ArrayList<>();
+        Map<Vm, Integer> vmPart = new IdentityHashMap<>();
+        for (int v = 0; v < vmList.size(); ++v) {
+            Vm vm = vmList.get(v);
+            int i = vm.getHost() == null ? -1 : table.indexOf(vm.getHost());
+            if (i >= 0) {
+                int p = hostPart[i];
+                vmPart.put(vm, p);
+                partFree[p] -= demand(table, v, totalFree);
+            } else pending.add(v);
+        }
+        Collections.sort(pending, Comparator.comparingDouble((Integer v) -> demand(table, v, totalFree)).reversed());
+        for (int v : pending) {
+            int p = 0;
+            for (int q = 1; q < parts; ++q) {
+                if (partFree[q] > partFree[p]) p = q;
+            }
+            vmPart.put(vmList.get(v), p);
+            partFree[p] -= demand(table, v, totalFree);
+        }
+
+        //Cada part té les seves pròpies VMs (el solver les torna a la solució per @PlanningId);
+        //els hosts només es llegeixen, es comparteixen
+        for (int v = 0; v < vmList.size(); ++v) {
+            Vm vm = vmList.get(v);
+            Vm copy = new Vm(vm.getId(), vm.getUserId(), vm.getMips(), vm.getNumberOfPes(), vm.getRam(), vm.getBw(),
+                    vm.getSize(), vm.getVmm(), vm.getCloudletScheduler());
+            if (vm.getHost() != null && table.indexOf(vm.getHost()) >= 0) copy.setHost(vm.getHost());
+            int p = vmPart.get(vm);
+            partVms.get(p).add(copy);
+            partVmIndex.get(p).add(v);
+        }
+
+        //La taula de cada part surt de l'original: conserva l'ús base i els costos de migració
+        List<HostVmBalance> partList = new ArrayList<>(parts);
+        for (int p = 0; p < parts; ++p) {
+            HostCapacityTable partTable = table.subTable(partHostIndex.get(p), partVmIndex.get(p));
+            partList.add(new HostVmBalance(partHosts.get(p), partVms.get(p), partTable));
+        }
+        return partList;
+    }
+
+    //Capacitat lliure d'un recurs d'un host abans de planificar
+    private static double free(HostCapacityTable table, int host, int resource) {
+        return table.getCapacity(host, resource) - table.getBaseUsage(host, resource);
+    }
+
+    //Capacitat lliure normalitzada d'un grup de hosts: suma de la fracció del total de cada recurs
+    private static double free(HostCapacityTable table, List<Integer> group, double[] totalFree) {
+        double free = 0.0;
+        for (int i : group) {
+            for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) {
+                if (totalFree[r] > 0) free += Math.max(0.0, free(table, i, r))/totalFree[r];
+            }
+        }
+        return free;
+    }
+
+    //Demanda d'una VM, normalitzada igual que la capacitat lliure
+    private static double demand(HostCapacityTable table, int vm, double[] totalFree) {
+        double demand = 0.0;
+        for (int r = 0; r < HostCapacityTable.RESOURCES; ++r) {
+            if (totalFree[r] > 0) demand += table.getVmDemand(vm, r)/totalFree[r];
+        }
+        return demand;
+    }
+}
@@ -0,0 +1,24 @@
+package com.optacloud.domain;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.selector.common.decorator.SelectionFilter;
+import org.optaplanner.core.impl.heuristic.selector.move.generic.SwapMove;
+
+//Descarta els intercanvis on alguna de les dues VMs no cap al host de l'altra (capacitat lliure d'abans de planificar)
+public class HostVmSwapMoveFilter implements SelectionFilter<HostVmBalance, SwapMove<HostVmBalance>> {
+
+    public boolean accept(ScoreDirector<HostVmBalance> scoreDirector, SwapMove<HostVmBalance> move) {
+        Vm left = (Vm) move.getLeftEntity();
+        Vm right = (Vm) move.getRightEntity();
+        HostCapacityTable table = scoreDirector.getWorkingSolution().getCapacityTable();
+        return fits(table, right.getHost(), left) && fits(table, left.getHost(), right);
+    }
+
+    private boolean fits(HostCapacityTable table, Host computer, Vm vm) {
+        if (computer == null) return true;
+        int i = table.indexOf(computer);
+        return i < 0 || table.fits(i, vm);
+    }
+}
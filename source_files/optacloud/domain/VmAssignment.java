@@ -0,0 +1,63 @@
+package com.optacloud.domain;
+
+import org.optaplanner.core.api.domain.entity.PlanningEntity;
+import org.optaplanner.core.api.domain.lookup.PlanningId;
+import org.optaplanner.core.api.domain.variable.PlanningVariable;
+
+/**
+ * VM del model de planificació lleuger (HostSlotBalance): la demanda en enters i el HostSlot
+ * assignat. Els moviments del solver només canvien hostSlot, de manera que l'estat de la
+ * simulació (Vm.getHost) no es toca fins que HostSlotMapper aplica la solució.
+ */
+@PlanningEntity(difficultyComparatorClass = VmAssignmentDifficultyComparator.class)
+public class VmAssignment {
+
+    //Posició de la VM a la llista de VMs del problema (i a la HostCapacityTable)
+    private final int index;
+
+    private final int vmId;
+
+    //Demanda indexada per recurs (HostCapacityTable.MIPS, ...), compartida entre còpies
+    private final int[] demand;
+
+    private HostSlot hostSlot;
+
+    public VmAssignment(int index, int vmId, int[] demand, HostSlot hostSlot) {
+        this.index = index;
+        this.vmId = vmId;
+        this.demand = demand;
+        this.hostSlot = hostSlot;
+    }
+
+    //Còpia per al HostSlotBalanceCloner: comparteix la demanda i el HostSlot
+    VmAssignment(VmAssignment original) {
+        this(original.index, original.vmId, original.demand, original.hostSlot);
+    }
+
+    @PlanningId
+    public int getIndex() {
+        return index;
+    }
+
+    public int getVmId() {
+        return vmId;
+    }
+
+    public int getDemand(int resource) {
+        return demand[resource];
+    }
+
+    @PlanningVariable(valueRangeProviderRefs = {"hostSlotRange"}, strengthComparatorClass = HostSlotStrengthComparator.class)
+    public HostSlot getHostSlot() {
+        return hostSlot;
+    }
+
+    public void setHostSlot(HostSlot hostSlot) {
+        this.hostSlot = hostSlot;
+    }
+
+    @Override
+    public String toString() {
+        return "VmAssignment" + vmId + "->" + hostSlot;
+    }
+}
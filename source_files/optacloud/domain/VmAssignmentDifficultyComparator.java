@@ -0,0 +1,18 @@
+package com.optacloud.domain;
+
+import org.apache.commons.lang3.builder.CompareToBuilder;
+
+import java.util.Comparator;
+
+//Mateix ordre que VmDifficultyComparatorClass: primer les VMs que utilitzen més recursos
+public class VmAssignmentDifficultyComparator implements Comparator<VmAssignment> {
+    public int compare(VmAssignment a, VmAssignment b) {
+        return new CompareToBuilder()
+                .append(a.getDemand(HostCapacityTable.MIPS), b.getDemand(HostCapacityTable.MIPS))
+                .append(a.getDemand(HostCapacityTable.STORAGE), b.getDemand(HostCapacityTable.STORAGE))
+                .append(a.getDemand(HostCapacityTable.RAM), b.getDemand(HostCapacityTable.RAM))
+                .append(a.getDemand(HostCapacityTable.BW), b.getDemand(HostCapacityTable.BW))
+                .append(a.getVmId(), b.getVmId())
+                .toComparison();
+    }
+}
@@ -43,6 +43,31 @@ public class VmCloudletBalance {
         this.cloudletlist = cloudletlist;
     }
 
+    /**
+     * Cota inferior del makespan: el cloudlet més llarg a la VM més ràpida, o tota la feina repartida
+     * perfectament entre totes les VMs. Mateix càlcul de feina que els score calculators.
+     *
+     * @return the makespan lower bound
+     */
+    public double getMakespanLowerBound() {
+        double maxMips = 0.0;
+        double totalMips = 0.0;
+        for (Vm vm : vmlist) {
+            maxMips = Math.max(maxMips, vm.getMips());
+            totalMips += vm.getMips();
+        }
+        if (totalMips <= 0.0) return 0.0;
+
+        double maxWork = 0.0;
+        double totalWork = 0.0;
+        for (Cloudlet cl : cloudletlist) {
+            double work = (double) cl.getCloudletLength()/cl.getUtilizationModelCpu().getUtilization(0);
+            maxWork = Math.max(maxWork, work);
+            totalWork += work;
+        }
+        return Math.max(maxWork/maxMips, totalWork/totalMips);
+    }
+
     @PlanningScore
     public HardSoftScore getScore() {
         return score;
@@ -1,6 +1,7 @@
 package com.optacloud;
 
 import java.text.DecimalFormat;
+import com.optacloud.telemetry.*;
 import org.cloudbus.cloudsim.*;
 import org.cloudbus.cloudsim.core.*;
 import org.cloudbus.cloudsim.power.models.PowerModel;
@@ -122,7 +123,17 @@ public class main {
         Datacenter datacenter = null;
         VmAllocationPolicy allocPol = null;
 
-        if (opta) allocPol = new VmAllocationPolicyOpta(hostList);
+        if (opta) {
+            VmAllocationPolicyOpta optaPolicy = new VmAllocationPolicyOpta(hostList);
+            //optaPolicy.setSolverConfig(VmAllocationPolicyOpta.SOLVER_CONFIG_HOSTVM_STREAMS);
+            //optaPolicy.setSolverConfig(VmAllocationPolicyOpta.SOLVER_CONFIG_HOSTVM_PARTITIONED);
+            //optaPolicy.setSolverConfig(VmAllocationPolicyOpta.SOLVER_CONFIG_HOSTSLOT);
+            //optaPolicy.setWarmStart(true);
+            //optaPolicy.setGreedyShortcut(true);
+            //optaPolicy.setMoveThreadCount("AUTO");
+            //SolverTelemetry.addSink(new JsonlTelemetrySink("solver_telemetry.jsonl")); //llança IOException
+            allocPol = optaPolicy;
+        }
         else allocPol = new VmAllocationPolicySimple(hostList);
 
         try {
@@ -277,6 +288,7 @@ public class main {
 
         //cridar cloudsim per simular la millor solucio/les x millors
         CloudSim.startSimulation();
+        SolverTelemetry.close();
 
         // Final step: Print results when simulation is over
 	    List<Cloudlet> newList1 = broker.getCloudletReceivedList();
@@ -1,6 +1,7 @@
 package com.optacloud;
 
 import com.sun.xml.bind.v2.runtime.unmarshaller.XsiNilLoader;
+import com.optacloud.telemetry.*;
 import org.cloudbus.cloudsim.*;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
@@ -99,6 +100,7 @@ public class mainDelay {
             broker = new DatacenterBrokerDelay(name);
             broker.setRedistribute(redistribute);
             broker.setRedistributeLevel(redistribute_level);
+            //broker.setMigrationReplan(true);
             broker.setDelayedSubmit(delayedSubmit);
             //Només es pot aplicar un mètode
             if (delay_time) {
@@ -155,7 +157,19 @@ public class mainDelay {
         Datacenter datacenter = null;
         VmAllocationPolicy allocPol = null;
 
-        if (opta) allocPol = new VmAllocationPolicyOpta(hostList);
+        if (opta) {
+            VmAllocationPolicyOpta optaPolicy = new VmAllocationPolicyOpta(hostList);
+            //optaPolicy.setSolverConfig(VmAllocationPolicyOpta.SOLVER_CONFIG_HOSTVM_STREAMS);
+            //optaPolicy.setSolverConfig(VmAllocationPolicyOpta.SOLVER_CONFIG_HOSTVM_PARTITIONED);
+            //optaPolicy.setSolverConfig(VmAllocationPolicyOpta.SOLVER_CONFIG_HOSTSLOT);
+            //optaPolicy.setWarmStart(true);
+            //optaPolicy.setGreedyShortcut(true);
+            //optaPolicy.setMigrationCostWeight(0.01);
+            //optaPolicy.setAsyncSolving(true);
+            //optaPolicy.setMoveThreadCount("AUTO");
+            //SolverTelemetry.addSink(new JsonlTelemetrySink("solver_telemetry.jsonl")); //llança IOException
+            allocPol = optaPolicy;
+        }
         else allocPol = new VmAllocationPolicySimple(hostList);
         //else allocPol = new PowerVmAllocationPolicyMigrationStaticThreshold(hostList, new PowerVmSelectionPolicyRandomSelection(), 0.9);
 
@@ -438,6 +452,7 @@ public class mainDelay {
         submitCloudlets();
 
         CloudSim.startSimulation();
+        SolverTelemetry.close();
 
         // Obtain results of the execution
 	    List<Cloudlet> resultCloudlet = broker.getCloudletResult();
@@ -1,5 +1,6 @@
 ﻿package com.optacloud;
 
+import com.optacloud.telemetry.*;
 import org.cloudbus.cloudsim.*;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.power.*;
@@ -94,6 +95,7 @@ public class mainDelayPower {
             broker = new PowerDatacenterBroker(name);
             broker.setRedistribute(redistribute);
             broker.setRedistributeLevel(redistribute_level);
+            //broker.setMigrationReplan(true);
             broker.setDelayedSubmit(delayedSubmit);
             //Només es pot aplicar un mètode
             if (delay_time) {
@@ -150,7 +152,19 @@ public class mainDelayPower {
         PowerDatacenter datacenter = null;
         VmAllocationPolicy allocPol = null;
 
-        if (opta) allocPol = new VmAllocationPolicyOpta(hostList);
+        if (opta) {
+            VmAllocationPolicyOpta optaPolicy = new VmAllocationPolicyOpta(hostList);
+            //optaPolicy.setSolverConfig(VmAllocationPolicyOpta.SOLVER_CONFIG_HOSTVM_STREAMS);
+            //optaPolicy.setSolverConfig(VmAllocationPolicyOpta.SOLVER_CONFIG_HOSTVM_PARTITIONED);
+            //optaPolicy.setSolverConfig(VmAllocationPolicyOpta.SOLVER_CONFIG_HOSTSLOT);
+            //optaPolicy.setWarmStart(true);
+            //optaPolicy.setGreedyShortcut(true);
+            //optaPolicy.setMigrationCostWeight(0.01);
+            //optaPolicy.setAsyncSolving(true);
+            //optaPolicy.setMoveThreadCount("AUTO");
+            //SolverTelemetry.addSink(new JsonlTelemetrySink("solver_telemetry.jsonl")); //llança IOException
+            allocPol = optaPolicy;
+        }
         else allocPol = new VmAllocationPolicySimple(hostList);
         //else allocPol = new PowerVmAllocationPolicyMigrationStaticThreshold(hostList, new PowerVmSelectionPolicyRandomSelection(), 0.9);
 
@@ -426,6 +440,7 @@ public class mainDelayPower {
         submitCloudlets();
 
         CloudSim.startSimulation();
+        SolverTelemetry.close();
 
         // Obtain results of the execution
 	    List<Cloudlet> resultCloudlet = broker.getCloudletResult();
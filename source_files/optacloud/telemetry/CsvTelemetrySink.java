@@ -0,0 +1,40 @@
+package com.optacloud.telemetry;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Escriu una fila per resolució, separada per ';' com la resta de sortides CSV del projecte.
+ * Els esdeveniments de millor puntuació no hi surten; vegeu JsonlTelemetrySink.
+ */
+public class CsvTelemetrySink implements TelemetrySink {
+
+    private final Writer out;
+
+    public CsvTelemetrySink(String fileName) throws IOException {
+        out = new BufferedWriter(new FileWriter(fileName));
+        out.write("solverConfig;simulationTime;startMillis;wallMillis;scoreCalculationCount;scoreCalculationSpeed;"
+                + "entityCount;assignedCount;outcome;bestScore;bestScoreEvents\n");
+    }
+
+    @Override
+    public void write(SolveRecord record) throws IOException {
+        out.write(record.getSolverConfig() + ";" + record.getSimulationTime() + ";" + record.getStartMillis() + ";"
+                + record.getWallMillis() + ";" + record.getScoreCalculationCount() + ";"
+                + record.getScoreCalculationSpeed() + ";" + record.getEntityCount() + ";"
+                + record.getAssignedCount() + ";" + record.getOutcome() + ";" + record.getBestScore() + ";"
+                + record.getBestScoreEvents().size() + "\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,59 @@
+package com.optacloud.telemetry;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Escriu un objecte JSON per línia i resolució, amb la llista d'esdeveniments de millor puntuació.
+ */
+public class JsonlTelemetrySink implements TelemetrySink {
+
+    private final Writer out;
+
+    public JsonlTelemetrySink(String fileName) throws IOException {
+        out = new BufferedWriter(new FileWriter(fileName));
+    }
+
+    @Override
+    public void write(SolveRecord record) throws IOException {
+        StringBuilder line = new StringBuilder(256);
+        line.append("{\"solverConfig\":").append(quote(record.getSolverConfig()))
+                .append(",\"simulationTime\":").append(record.getSimulationTime())
+                .append(",\"startMillis\":").append(record.getStartMillis())
+                .append(",\"wallMillis\":").append(record.getWallMillis())
+                .append(",\"scoreCalculationCount\":").append(record.getScoreCalculationCount())
+                .append(",\"scoreCalculationSpeed\":").append(record.getScoreCalculationSpeed())
+                .append(",\"entityCount\":").append(record.getEntityCount())
+                .append(",\"assignedCount\":").append(record.getAssignedCount())
+                .append(",\"outcome\":").append(quote(record.getOutcome().name()))
+                .append(",\"bestScore\":").append(quote(record.getBestScore()))
+                .append(",\"bestScoreEvents\":[");
+        boolean first = true;
+        for (SolveRecord.BestScoreEvent event : record.getBestScoreEvents()) {
+            if (!first) line.append(',');
+            line.append("{\"timeMillis\":").append(event.getTimeMillis())
+                    .append(",\"score\":").append(quote(event.getScore())).append('}');
+            first = false;
+        }
+        line.append("]}\n");
+        out.write(line.toString());
+    }
+
+    //Les puntuacions i els recursos no tenen cometes ni barres, però per si de cas
+    private static String quote(String s) {
+        if (s == null) return "null";
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,116 @@
+package com.optacloud.telemetry;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dades d'una resolució del solver: temps, càlculs de puntuació, evolució de la millor puntuació
+ * i resultat. És immutable, per poder-la passar al fil d'escriptura de SolverTelemetry.
+ */
+public class SolveRecord {
+
+    /** Resultat de la resolució */
+    public enum Outcome {
+        /** Totes les entitats s'han pogut assignar */
+        ALLOCATED,
+        /** Algunes entitats han quedat sense assignar */
+        PARTIAL,
+        /** Cap entitat s'ha pogut assignar */
+        FAILED
+    }
+
+    private final String solverConfig;
+    private final double simulationTime;
+    private final long startMillis;
+    private final long wallMillis;
+    private final long scoreCalculationCount;
+    private final int entityCount;
+    private final String bestScore;
+    private final int assignedCount;
+    private final List<BestScoreEvent> bestScoreEvents;
+
+    public SolveRecord(String solverConfig, double simulationTime, long startMillis, long wallMillis,
+                       long scoreCalculationCount, int entityCount, String bestScore, int assignedCount,
+                       List<BestScoreEvent> bestScoreEvents) {
+        this.solverConfig = solverConfig;
+        this.simulationTime = simulationTime;
+        this.startMillis = startMillis;
+        this.wallMillis = wallMillis;
+        this.scoreCalculationCount = scoreCalculationCount;
+        this.entityCount = entityCount;
+        this.bestScore = bestScore;
+        this.assignedCount = assignedCount;
+        this.bestScoreEvents = Collections.unmodifiableList(bestScoreEvents);
+    }
+
+    public String getSolverConfig() {
+        return solverConfig;
+    }
+
+    //Rellotge de CloudSim quan s'ha fet la resolució
+    public double getSimulationTime() {
+        return simulationTime;
+    }
+
+    //Instant (System.currentTimeMillis) d'inici de la resolució
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    public long getScoreCalculationCount() {
+        return scoreCalculationCount;
+    }
+
+    //Càlculs de puntuació per segon
+    public long getScoreCalculationSpeed() {
+        return wallMillis == 0 ? 0 : scoreCalculationCount * 1000L / wallMillis;
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    public String getBestScore() {
+        return bestScore;
+    }
+
+    public int getAssignedCount() {
+        return assignedCount;
+    }
+
+    public Outcome getOutcome() {
+        if (assignedCount >= entityCount) return Outcome.ALLOCATED;
+        return assignedCount == 0 ? Outcome.FAILED : Outcome.PARTIAL;
+    }
+
+    public List<BestScoreEvent> getBestScoreEvents() {
+        return bestScoreEvents;
+    }
+
+    /**
+     * Nova millor solució trobada durant la resolució.
+     */
+    public static class BestScoreEvent {
+
+        private final long timeMillis;
+        private final String score;
+
+        public BestScoreEvent(long timeMillis, String score) {
+            this.timeMillis = timeMillis;
+            this.score = score;
+        }
+
+        //Mil·lisegons des de l'inici de la resolució
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public String getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.optacloud.telemetry;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.event.SolverEventListener;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Telemetria de les resolucions del solver. Cada resolució es registra amb un {@link Recorder}
+ * (start abans del solve, finish després) i el SolveRecord resultant es guarda en memòria
+ * (els últims historySize) i s'envia als TelemetrySink des d'un únic fil d'escriptura, de manera
+ * que el fil de la simulació no espera cap escriptura.
+ */
+public final class SolverTelemetry {
+
+    /** Destins dels registres; només es fan servir des del fil d'escriptura */
+    private static final List<TelemetrySink> sinks = new ArrayList<>();
+
+    /** Últims registres, per consultar-los des del codi */
+    private static final Deque<SolveRecord> records = new ArrayDeque<>();
+
+    private static int historySize = 1000;
+
+    private static ExecutorService writer;
+
+    private SolverTelemetry() {
+    }
+
+    /**
+     * Comença a registrar una resolució. S'ha de cridar abans de Solver.solve, perquè es vegin els
+     * esdeveniments de nova millor puntuació. Si el solve falla, s'ha de cridar {@link Recorder#abort()}.
+     *
+     * @param solver the solver about to solve
+     * @param solverConfig the solver configuration resource, used to tell the records apart
+     * @param entityCount the number of planning entities in the problem
+     * @return the recorder to finish after the solve
+     */
+    public static <S> Recorder<S> start(Solver<S> solver, String solverConfig, int entityCount) {
+        return new Recorder<>(solver, solverConfig, entityCount);
+    }
+
+    private static synchronized void publish(final SolveRecord record) {
+        records.addLast(record);
+        while (records.size() > historySize) records.removeFirst();
+        if (sinks.isEmpty()) return;
+
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "SolverTelemetry");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        final List<TelemetrySink> targets = new ArrayList<>(sinks);
+        writer.execute(() -> {
+            for (TelemetrySink sink : targets) {
+                try {
+                    sink.write(record);
+                } catch (IOException e) {
+                    Log.printLine("SolverTelemetry: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    public static synchronized void addSink(TelemetrySink sink) {
+        sinks.add(sink);
+    }
+
+    public static synchronized void removeSink(TelemetrySink sink) {
+        sinks.remove(sink);
+    }
+
+    //Còpia dels últims registres, del més antic al més recent
+    public static synchronized List<SolveRecord> getRecords() {
+        return new ArrayList<>(records);
+    }
+
+    public static synchronized SolveRecord getLastRecord() {
+        return records.peekLast();
+    }
+
+    public static synchronized int getHistorySize() {
+        return historySize;
+    }
+
+    public static synchronized void setHistorySize(int historySize) {
+        SolverTelemetry.historySize = historySize;
+        while (records.size() > historySize) records.removeFirst();
+    }
+
+    /**
+     * Espera que s'escriguin tots els registres pendents i després buida els sinks.
+     */
+    public static void flush() {
+        List<TelemetrySink> targets;
+        ExecutorService current;
+        synchronized (SolverTelemetry.class) {
+            targets = new ArrayList<>(sinks);
+            current = writer;
+        }
+        if (current == null) return;
+        try {
+            current.submit(() -> {
+                for (TelemetrySink sink : targets) {
+                    try {
+                        sink.flush();
+                    } catch (IOException e) {
+                        Log.printLine("SolverTelemetry: " + e.getMessage());
+                    }
+                }
+            }).get();
+        } catch (Exception e) {
+            Log.printLine("SolverTelemetry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Escriu els registres pendents i tanca i treu tots els sinks. Es crida al final de la simulació.
+     */
+    public static void close() {
+        ExecutorService current;
+        List<TelemetrySink> targets;
+        synchronized (SolverTelemetry.class) {
+            current = writer;
+            writer = null;
+            targets = new ArrayList<>(sinks);
+            sinks.clear();
+        }
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (TelemetrySink sink : targets) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                Log.printLine("SolverTelemetry: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Registre d'una resolució en curs. Escolta les noves millors solucions fins que es crida finish
+     * o abort; el listener s'afegeix a solvers reutilitzats, per tant sempre s'ha de cridar un dels dos.
+     */
+    public static class Recorder<S> {
+
+        private final Solver<S> solver;
+        private final String solverConfig;
+        private final int entityCount;
+        private final double simulationTime;
+        private final long startMillis;
+        private final List<SolveRecord.BestScoreEvent> events = new ArrayList<>();
+        private final SolverEventListener<S> listener;
+        private boolean done;
+
+        private Recorder(Solver<S> solver, String solverConfig, int entityCount) {
+            this.solver = solver;
+            this.solverConfig = solverConfig;
+            this.entityCount = entityCount;
+            this.simulationTime = CloudSim.clock();
+            this.startMillis = System.currentTimeMillis();
+            //Amb move threads o partitioned search l'esdeveniment arriba des del fil del solver
+            this.listener = event -> {
+                SolveRecord.BestScoreEvent e = new SolveRecord.BestScoreEvent(
+                        System.currentTimeMillis() - startMillis, event.getNewBestScore().toString());
+                synchronized (events) {
+                    events.add(e);
+                }
+            };
+            solver.addEventListener(listener);
+        }
+
+        /**
+         * Acaba el registre i el publica.
+         *
+         * @param assignedCount the number of entities that were actually assigned (e.g. VMs created)
+         * @return the record of the solve
+         */
+        public SolveRecord finish(int assignedCount) {
+            if (done) throw new IllegalStateException("The recording has already ended");
+            done = true;
+            solver.removeEventListener(listener);
+            long wallMillis = System.currentTimeMillis() - startMillis;
+            long scoreCalculationCount = 0;
+            if (solver instanceof DefaultSolver) {
+                scoreCalculationCount = ((DefaultSolver<S>) solver).getScoreCalculationCount();
+            }
+            String bestScore = solver.getBestScore() == null ? null : solver.getBestScore().toString();
+            List<SolveRecord.BestScoreEvent> eventList;
+            synchronized (events) {
+                eventList = new ArrayList<>(events);
+            }
+            SolveRecord record = new SolveRecord(solverConfig, simulationTime, startMillis, wallMillis,
+                    scoreCalculationCount, entityCount, bestScore, assignedCount, eventList);
+            publish(record);
+            return record;
+        }
+
+        /**
+         * Acaba el registre sense publicar-lo (p.ex. si el solve ha fallat). No fa res si ja s'ha acabat.
+         */
+        public void abort() {
+            if (done) return;
+            done = true;
+            solver.removeEventListener(listener);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.optacloud.telemetry;
+
+import java.io.IOException;
+
+/**
+ * Destí dels SolveRecord. Només es crida des del fil d'escriptura de SolverTelemetry,
+ * per tant les implementacions no cal que siguin thread-safe.
+ */
+public interface TelemetrySink {
+
+    void write(SolveRecord record) throws IOException;
+
+    void flush() throws IOException;
+
+    void close() throws IOException;
+}